@@ -0,0 +1,215 @@
+import java.util.LinkedList;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * The class FlatKdTree is an immutable, read-optimised 2d-tree with the same
+ * queries as {@code KdTree}. Instead of nodes with references and a rectangle
+ * each, the coordinates are stored in two parallel {@code double} arrays in
+ * Eytzinger (breadth-first) order: the children of the node at index i are at
+ * 2i + 1 and 2i + 2. The tree is built complete by median splits, and the
+ * rectangle of a node is derived from its ancestors during the traversal, so a
+ * point costs 16 bytes and the top levels of the tree share cache lines.
+ *
+ * A node splits on x at even depths and on y at odd depths. The points in its
+ * left subtree have a key at most its key and the points in its right subtree a
+ * key at least its key.
+ *
+ * @author Karthikeyan
+ */
+public class FlatKdTree {
+    private final double[] xs;  // x-coordinates, in Eytzinger order
+    private final double[] ys;  // y-coordinates, in Eytzinger order
+
+    /**
+     * Builds the tree of the given points.
+     * @param points the points, duplicates are added once
+     * @throws IllegalArgumentException if points or any point is null
+     */
+    public FlatKdTree(Point2D[] points) {
+        Point2D[] a = KdSelect.distinct(points);
+        int n = a.length;
+        xs = new double[n];
+        ys = new double[n];
+        build(a, 0, n, 0, true);
+    }
+
+    // places the points a[lo..hi) in the subtree of node i
+    private void build(Point2D[] a, int lo, int hi, int i, boolean vertical) {
+        if (lo >= hi) return;
+        int k = lo + leftSize(hi - lo);
+        KdSelect.select(a, lo, hi, k, vertical);
+        xs[i] = a[k].x();
+        ys[i] = a[k].y();
+        build(a, lo, k, 2 * i + 1, !vertical);
+        build(a, k + 1, hi, 2 * i + 2, !vertical);
+    }
+
+    // returns the size of the left subtree of a complete binary tree of m nodes
+    private static int leftSize(int m) {
+        if (m <= 1) return 0;
+        int p = Integer.highestOneBit(m);  // 2^h, where h is the height
+        int last = m - (p - 1);            // nodes on the last level
+        return p / 2 - 1 + Math.min(last, p / 2);
+    }
+
+    /**
+     * Returns true if empty; false otherwise.
+     * @return returns true if empty; false otherwise
+     */
+    public boolean isEmpty() {
+        return xs.length == 0;
+    }
+
+    /**
+     * Returns number of points in the tree.
+     * @return returns number of points in the tree
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Returns true if the given point in the tree; false otherwise.
+     * @param p the point to check
+     * @throws IllegalArgumentException if the point is null
+     * @return true if contains; false otherwise
+     */
+    public boolean contains(Point2D p) {
+        if (p == null) throw new IllegalArgumentException("Null values not allowed");
+        return contains(0, true, p.x(), p.y());
+    }
+
+    // returns true if the subtree of node i contains the point
+    private boolean contains(int i, boolean vertical, double x, double y) {
+        while (i < xs.length) {
+            if (xs[i] == x && ys[i] == y) return true;
+            double v = vertical ? xs[i] : ys[i];
+            double c = vertical ? x : y;
+            // points with the same key can be on either side
+            if (c == v && contains(2 * i + 2, !vertical, x, y)) return true;
+            i = c <= v ? 2 * i + 1 : 2 * i + 2;
+            vertical = !vertical;
+        }
+        return false;
+    }
+
+    /**
+     * Returns an iterable with the points in the range.
+     * @param rect the rectangle to check
+     * @throws IllegalArgumentException if rect is null
+     * @return an iterable
+     */
+    public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null) throw new IllegalArgumentException("Null values not allowed");
+        LinkedList<Point2D> ls = new LinkedList<>();
+        add(0, true, ls, rect);
+        return ls;
+    }
+
+    // adds the points within the rectangle; the side of a subtree that can hold
+    // points in the rectangle follows from the split key alone
+    private void add(int i, boolean vertical, LinkedList<Point2D> ls, RectHV rect) {
+        if (i >= xs.length) return;
+        double x = xs[i], y = ys[i];
+        if (x >= rect.xmin() && x <= rect.xmax() && y >= rect.ymin() && y <= rect.ymax())
+            ls.add(new Point2D(x, y));
+        double v = vertical ? x : y;
+        if ((vertical ? rect.xmin() : rect.ymin()) <= v) add(2 * i + 1, !vertical, ls, rect);
+        if ((vertical ? rect.xmax() : rect.ymax()) >= v) add(2 * i + 2, !vertical, ls, rect);
+    }
+
+    /**
+     * Returns the nearest point of the given point.
+     * @param p the point to check
+     * @throws IllegalArgumentException if p is null
+     * @return the nearest point; null if the tree is empty
+     */
+    public Point2D nearest(Point2D p) {
+        if (p == null) throw new IllegalArgumentException("Null values are not allowed");
+        if (isEmpty()) return null;
+        Champion champion = new Champion();
+        nearest(0, true, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, p.x(), p.y(), champion);
+        return new Point2D(xs[champion.index], ys[champion.index]);
+    }
+
+    // the closest node found so far and its squared distance, one per query
+    private static final class Champion {
+        int index = -1;
+        double distance = Double.POSITIVE_INFINITY;
+    }
+
+    // visits the subtree of node i, whose rectangle is given by its bounds
+    private void nearest(int i, boolean vertical, double xmin, double ymin, double xmax,
+                         double ymax, double qx, double qy, Champion champion) {
+        if (i >= xs.length) return;
+        double dx = qx < xmin ? xmin - qx : qx > xmax ? qx - xmax : 0;
+        double dy = qy < ymin ? ymin - qy : qy > ymax ? qy - ymax : 0;
+        if (dx * dx + dy * dy >= champion.distance) return;
+
+        double px = xs[i] - qx, py = ys[i] - qy;
+        double d = px * px + py * py;
+        if (d < champion.distance) {
+            champion.distance = d;
+            champion.index = i;
+        }
+        int left = 2 * i + 1, right = 2 * i + 2;
+        if (vertical) {
+            double v = xs[i];
+            if (qx <= v) {
+                nearest(left, false, xmin, ymin, v, ymax, qx, qy, champion);
+                nearest(right, false, v, ymin, xmax, ymax, qx, qy, champion);
+            }
+            else {
+                nearest(right, false, v, ymin, xmax, ymax, qx, qy, champion);
+                nearest(left, false, xmin, ymin, v, ymax, qx, qy, champion);
+            }
+        }
+        else {
+            double v = ys[i];
+            if (qy <= v) {
+                nearest(left, true, xmin, ymin, xmax, v, qx, qy, champion);
+                nearest(right, true, xmin, v, xmax, ymax, qx, qy, champion);
+            }
+            else {
+                nearest(right, true, xmin, v, xmax, ymax, qx, qy, champion);
+                nearest(left, true, xmin, ymin, xmax, v, qx, qy, champion);
+            }
+        }
+    }
+
+    // unit tests the code against PointSET
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Point2D[] points = new Point2D[n];
+        PointSET set = new PointSET();
+        for (int i = 0; i < n; i++) {
+            // a coarse grid, so that there are ties and duplicates
+            points[i] = new Point2D(StdRandom.uniformInt(1000) / 1000.0,
+                                    StdRandom.uniformInt(1000) / 1000.0);
+            set.insert(points[i]);
+        }
+        FlatKdTree tree = new FlatKdTree(points);
+
+        boolean same = tree.size() == set.size();
+        for (int i = 0; i < 1000; i++) {
+            Point2D q = new Point2D(StdRandom.uniformInt(1000) / 1000.0,
+                                    StdRandom.uniformInt(1000) / 1000.0);
+            same &= tree.contains(q) == set.contains(q);
+            same &= tree.nearest(q).distanceTo(q) == set.nearest(q).distanceTo(q);
+        }
+        for (int i = 0; i < 100; i++) {
+            double x = StdRandom.uniformDouble(0, 0.9), y = StdRandom.uniformDouble(0, 0.9);
+            RectHV rect = new RectHV(x, y, x + 0.1, y + 0.1);
+            int count = 0, expected = 0;
+            for (Point2D p : tree.range(rect)) count++;
+            for (Point2D p : set.range(rect)) expected++;
+            same &= count == expected;
+        }
+        StdOut.println("Test - 1 same as PointSET: " + same);
+    }
+}
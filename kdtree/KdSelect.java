@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * The class KdSelect holds the steps shared by the bulk builders of 
+ * {@code KdTree} and {@code FlatKdTree}: dropping the duplicate points, and 
+ * finding the median of a coordinate by quickselect.
+ * 
+ * @author Karthikeyan
+ */
+class KdSelect {
+
+    // not instantiable
+    private KdSelect() { }
+
+    /**
+     * Returns the given points without the duplicates, in sorted order.
+     * @param points the points, left unchanged
+     * @throws IllegalArgumentException if points or any point is null
+     * @return a new array of the distinct points
+     */
+    static Point2D[] distinct(Point2D[] points) {
+        if (points == null) throw new IllegalArgumentException("Null values not allowed");
+        for (Point2D p : points)
+            if (p == null) throw new IllegalArgumentException("Null values not allowed");
+
+        Point2D[] a = points.clone();
+        Arrays.parallelSort(a);
+        int n = 0;
+        for (int i = 0; i < a.length; i++)
+            if (n == 0 || !a[i].equals(a[n - 1])) a[n++] = a[i];
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+
+    /**
+     * Rearranges a[lo..hi) so that a[k] has the key it would have if sorted, the 
+     * keys before it are at most its key and the keys after it at least its key.
+     * @param a the points
+     * @param lo the first index of the range
+     * @param hi the index after the range
+     * @param k the index to select, in [lo, hi)
+     * @param vertical true to compare the x-coordinates; false for the y
+     * @return the index of the last point with the key of a[k]; the keys after 
+     * it are greater
+     */
+    static int select(Point2D[] a, int lo, int hi, int k, boolean vertical) {
+        int l = lo, r = hi - 1;
+        while (true) {
+            double v = key(a[ThreadLocalRandom.current().nextInt(l, r + 1)], vertical);
+            // 3-way partition: a[l..lt) < v, a[lt..gt] == v, a(gt..r] > v
+            int lt = l, gt = r, i = l;
+            while (i <= gt) {
+                double c = key(a[i], vertical);
+                if (c < v)      swap(a, lt++, i++);
+                else if (c > v) swap(a, i, gt--);
+                else            i++;
+            }
+            if (k < lt)      r = lt - 1;
+            else if (k > gt) l = gt + 1;
+            else             return gt;
+        }
+    }
+
+    // returns the coordinate of the point compared on the given line
+    private static double key(Point2D p, boolean vertical) {
+        return vertical ? p.x() : p.y();
+    }
+
+    private static void swap(Point2D[] a, int i, int j) {
+        Point2D t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // unit tests the code
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Point2D[] points = new Point2D[n];
+        for (int i = 0; i < n; i++) {
+            // a coarse grid, so that there are ties and duplicates
+            points[i] = new Point2D(StdRandom.uniformInt(100) / 100.0, 
+                                    StdRandom.uniformInt(100) / 100.0);
+        }
+        Point2D[] a = distinct(points);
+        boolean distinct = true;
+        for (int i = 1; i < a.length; i++) distinct &= a[i - 1].compareTo(a[i]) < 0;
+        StdOut.println("Test - 1 distinct: " + distinct + ", " + a.length + " of " + n);
+
+        int k = a.length / 2;
+        int last = select(a, 0, a.length, k, true);
+        boolean split = last >= k && a[last].x() == a[k].x();
+        for (int i = 0; i < a.length; i++) {
+            if (i < k)     split &= a[i].x() <= a[k].x();
+            if (i > k)     split &= a[i].x() >= a[k].x();
+            if (i > last)  split &= a[i].x() > a[k].x();
+        }
+        StdOut.println("Test - 2 select median: " + split);
+    }
+}
\ No newline at end of file
@@ -1,9 +1,22 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
 /**
  * The class KdTree uses 2d-tree to support efficient range search (find all 
@@ -17,6 +30,7 @@ import edu.princeton.cs.algs4.StdOut;
 public class KdTree {
     private static final boolean RED  = false; // x-coordinate color
     private static final boolean BLUE = true;  // y-coordinate color
+    private static final int PARALLEL_CUTOFF = 1 << 13; // smallest subtree built in parallel
     private Node root;                         // root of the tree
 
     /**
@@ -66,6 +80,73 @@ public class KdTree {
         return x;
     }
 
+    /**
+     * Returns a balanced tree of the given points, built by splitting at the 
+     * median of the alternating coordinate (found by quickselect) instead of 
+     * inserting the points one by one, so the depth is O(log n) whatever the 
+     * order of the points. Large subtrees are built in parallel.
+     * @param points the points, duplicates are added once
+     * @throws IllegalArgumentException if points or any point is null
+     * @return the tree
+     */
+    public static KdTree build(Point2D[] points) {
+        Point2D[] a = KdSelect.distinct(points);
+        int n = a.length;
+        KdTree tree = new KdTree();
+        if (n > 0) tree.root = ForkJoinPool.commonPool()
+                                           .invoke(tree.new Build(a, 0, n, RED, new RectHV(0, 0, 1, 1)));
+        return tree;
+    }
+
+    // builds the subtree of the points a[lo..hi), in parallel if it is large
+    @SuppressWarnings("serial")
+    private class Build extends RecursiveTask<Node> {
+        private final Point2D[] a;
+        private final int lo, hi;
+        private final boolean line;
+        private final RectHV rect;
+
+        Build(Point2D[] a, int lo, int hi, boolean line, RectHV rect) {
+            this.a = a;
+            this.lo = lo;
+            this.hi = hi;
+            this.line = line;
+            this.rect = rect;
+        }
+
+        @Override
+        protected Node compute() {
+            if (hi - lo < PARALLEL_CUTOFF) return build(a, lo, hi, line, rect);
+            int mid = split(a, lo, hi, line);
+            Node x = new Node(a[mid], rect, hi - lo);
+            x.line = line;
+            Build left = lo < mid ? new Build(a, lo, mid, !line, x.leftRect()) : null;
+            Build right = mid + 1 < hi ? new Build(a, mid + 1, hi, !line, x.rightRect()) : null;
+            if (left != null) left.fork();
+            if (right != null) x.right = right.compute();
+            if (left != null) x.left = left.join();
+            return x;
+        }
+    }
+
+    // builds the subtree of the points a[lo..hi) sequentially
+    private Node build(Point2D[] a, int lo, int hi, boolean line, RectHV rect) {
+        if (lo >= hi) return null;
+        int mid = split(a, lo, hi, line);
+        Node x = new Node(a[mid], rect, hi - lo);
+        x.line = line;
+        if (lo < mid)     x.left = build(a, lo, mid, !line, x.leftRect());
+        if (mid + 1 < hi) x.right = build(a, mid + 1, hi, !line, x.rightRect());
+        return x;
+    }
+
+    // rearranges a[lo..hi) around the median of the coordinate of the line and 
+    // returns its index, so that the points on its left have a key at most its 
+    // key and the points on its right a greater key, as compare() expects
+    private static int split(Point2D[] a, int lo, int hi, boolean line) {
+        return KdSelect.select(a, lo, hi, lo + (hi - lo) / 2, line == RED);
+    }
+
     // creates and returns the rectangle for the given point
     private RectHV createRect(Node x, Point2D p) {
         if (x == null) return new RectHV(0, 0, 1, 1);
@@ -105,24 +186,132 @@ public class KdTree {
     }
 
     /**
-     * Returns an iterable with the points in the range.
+     * Returns an iterable with the points in the range. The points are found 
+     * lazily as it is iterated, so the tree must not be changed meanwhile.
      * @param rect the rectangle to check
      * @throws IllegalArgumentException if rect is null
      * @return an iterable
      */
     public Iterable<Point2D> range(RectHV rect) {
         if (rect == null) throw new IllegalArgumentException("Null values not allowed");
-        LinkedList<Point2D> ls = new LinkedList<>();
-        add(root, ls, rect);
-        return ls;
+        Node x = root;
+        return () -> Spliterators.iterator(new RangeSpliterator(x, rect));
     }
 
-    // adds the points within the rectangle
-    private void add(Node x, LinkedList<Point2D> ls, RectHV rect) {
+    /**
+     * Returns a stream of the points in the range, found lazily; it can be 
+     * split by subtrees to run in parallel. The tree must not be changed while 
+     * the stream runs.
+     * @param rect the rectangle to check
+     * @throws IllegalArgumentException if rect is null
+     * @return a stream of the points
+     */
+    public Stream<Point2D> rangeStream(RectHV rect) {
+        if (rect == null) throw new IllegalArgumentException("Null values not allowed");
+        return StreamSupport.stream(new RangeSpliterator(root, rect), false);
+    }
+
+    /**
+     * Calls the action on each point in the range, without collecting them.
+     * @param rect the rectangle to check
+     * @param action the action to call on each point
+     * @throws IllegalArgumentException if rect or action is null
+     */
+    public void range(RectHV rect, Consumer<? super Point2D> action) {
+        if (rect == null || action == null) throw new IllegalArgumentException("Null values not allowed");
+        range(root, rect, action);
+    }
+
+    // calls the action on the points within the rectangle
+    private void range(Node x, RectHV rect, Consumer<? super Point2D> action) {
         if (x == null || !x.rect.intersects(rect)) return;
-        if (rect.contains(x.point)) ls.add(x.point);
-        add(x.left, ls, rect);
-        add(x.right, ls, rect);
+        if (rect.contains(x.point)) action.accept(x.point);
+        range(x.left, rect, action);
+        range(x.right, rect, action);
+    }
+
+    /**
+     * Returns the number of points in the range. A subtree whose rectangle is 
+     * inside the range is counted by its size without visiting it.
+     * @param rect the rectangle to check
+     * @throws IllegalArgumentException if rect is null
+     * @return the number of points in the range
+     */
+    public int rangeCount(RectHV rect) {
+        if (rect == null) throw new IllegalArgumentException("Null values not allowed");
+        return rangeCount(root, rect);
+    }
+
+    // returns the number of points of the subtree within the rectangle
+    private int rangeCount(Node x, RectHV rect) {
+        if (x == null || !x.rect.intersects(rect)) return 0;
+        if (rect.xmin() <= x.rect.xmin() && x.rect.xmax() <= rect.xmax() 
+            && rect.ymin() <= x.rect.ymin() && x.rect.ymax() <= rect.ymax()) return x.count;
+        return (rect.contains(x.point) ? 1 : 0) + rangeCount(x.left, rect) + rangeCount(x.right, rect);
+    }
+
+    // walks the nodes whose rectangle intersects the range in preorder, keeping 
+    // the subtrees still to visit on an explicit stack
+    private class RangeSpliterator implements Spliterator<Point2D> {
+        private final RectHV rect;
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private Point2D head;  // a point to report before the stack, left by trySplit
+
+        RangeSpliterator(Node x, RectHV rect) {
+            this.rect = rect;
+            push(x);
+        }
+
+        private void push(Node x) {
+            if (x != null && x.rect.intersects(rect)) stack.push(x);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Point2D> action) {
+            if (head != null) {
+                action.accept(head);
+                head = null;
+                return true;
+            }
+            while (!stack.isEmpty()) {
+                Node x = stack.pop();
+                push(x.right);
+                push(x.left);
+                if (rect.contains(x.point)) {
+                    action.accept(x.point);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // hands over the bottom of the stack, the largest subtree still to visit
+        @Override
+        public Spliterator<Point2D> trySplit() {
+            if (stack.size() == 1 && head == null) {
+                Node x = stack.pop();
+                if (rect.contains(x.point)) head = x.point;
+                push(x.right);
+                push(x.left);
+            }
+            if (stack.size() < 2) return null;
+            RangeSpliterator split = new RangeSpliterator(null, rect);
+            split.stack.push(stack.removeLast());
+            return split;
+        }
+
+        // at most the sizes of the subtrees still to visit
+        @Override
+        public long estimateSize() {
+            long n = head == null ? 0 : 1;
+            for (Node x : stack) n += x.count;
+            return n;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
     }
 
     /**
@@ -137,12 +326,12 @@ public class KdTree {
         return nearest(root, root.point, p);
     }
 
-    // returns the nearest point
+    // returns the nearest point, comparing squared distances to avoid the roots
     private Point2D nearest(Node x, Point2D champion, Point2D query) {
-        if (x == null || x.rect.distanceTo(query) >= champion.distanceTo(query)) 
+        if (x == null || x.rect.distanceSquaredTo(query) >= champion.distanceSquaredTo(query)) 
             return champion;
 
-        if (query.distanceTo(x.point) < query.distanceTo(champion))
+        if (query.distanceSquaredTo(x.point) < query.distanceSquaredTo(champion))
             champion = x.point;
         if (compare(x, query) < 0) {
             champion = nearest(x.right, champion, query);
@@ -155,6 +344,187 @@ public class KdTree {
         return champion;
     }
 
+    /**
+     * Returns the k nearest points of the given point, nearest first.
+     * @param p the point to check
+     * @param k the number of points
+     * @throws IllegalArgumentException if p is null or k is negative
+     * @return an iterable with the min(k, size) nearest points
+     */
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null) throw new IllegalArgumentException("Null values are not allowed");
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        // max-heap of the best k so far, the farthest on top
+        PriorityQueue<Point2D> best = new PriorityQueue<>(Math.max(1, Math.min(k, size())),
+            (a, b) -> Double.compare(b.distanceSquaredTo(p), a.distanceSquaredTo(p)));
+        if (k > 0) nearest(root, p, k, best);
+
+        LinkedList<Point2D> ls = new LinkedList<>();
+        while (!best.isEmpty()) ls.addFirst(best.poll());
+        return ls;
+    }
+
+    // adds the points of the subtree that are among the k nearest to the heap
+    private void nearest(Node x, Point2D query, int k, PriorityQueue<Point2D> best) {
+        if (x == null) return;
+        if (best.size() == k 
+            && x.rect.distanceSquaredTo(query) >= best.peek().distanceSquaredTo(query)) return;
+
+        if (best.size() < k) best.add(x.point);
+        else if (query.distanceSquaredTo(x.point) < best.peek().distanceSquaredTo(query)) {
+            best.poll();
+            best.add(x.point);
+        }
+        if (compare(x, query) < 0) {
+            nearest(x.right, query, k, best);
+            nearest(x.left, query, k, best);
+        }
+        else {
+            nearest(x.left, query, k, best);
+            nearest(x.right, query, k, best);
+        }
+    }
+
+    /**
+     * Returns the points within the given distance of the given point.
+     * @param p the point to check
+     * @param r the radius
+     * @throws IllegalArgumentException if p is null or r is negative or NaN
+     * @return an iterable with the points at distance at most r
+     */
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null) throw new IllegalArgumentException("Null values are not allowed");
+        if (!(r >= 0)) throw new IllegalArgumentException("r must not be negative");
+        LinkedList<Point2D> ls = new LinkedList<>();
+        withinRadius(root, p, r * r, ls);
+        return ls;
+    }
+
+    // adds the points of the subtree within the squared radius
+    private void withinRadius(Node x, Point2D query, double r2, LinkedList<Point2D> ls) {
+        if (x == null || x.rect.distanceSquaredTo(query) > r2) return;
+        if (query.distanceSquaredTo(x.point) <= r2) ls.add(x.point);
+        withinRadius(x.left, query, r2, ls);
+        withinRadius(x.right, query, r2, ls);
+    }
+
+    /**
+     * Returns the nearest point of each of the given points. The queries are 
+     * sorted along a Z-order curve, so that consecutive queries walk the same 
+     * paths of the tree, and run in parallel. The tree must not be changed 
+     * while the batch runs.
+     * @param queries the points to check
+     * @throws IllegalArgumentException if queries or any query is null
+     * @return the nearest points, the i-th for the i-th query; all null if empty
+     */
+    public Point2D[] nearest(Point2D[] queries) {
+        if (queries == null) throw new IllegalArgumentException("Null values are not allowed");
+        long[] codes = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            if (queries[i] == null) throw new IllegalArgumentException("Null values are not allowed");
+            codes[i] = morton(queries[i].x(), queries[i].y());
+        }
+        int[] order = order(codes);
+        Point2D[] results = new Point2D[queries.length];
+        IntStream.range(0, order.length).parallel()
+                 .forEach(j -> results[order[j]] = nearest(queries[order[j]]));
+        return results;
+    }
+
+    /**
+     * Returns the points in each of the given rectangles, in flat arrays. The 
+     * queries are sorted along a Z-order curve by their centres and run in 
+     * parallel, once to count the points and once to write them in place. The 
+     * tree must not be changed while the batch runs.
+     * @param rects the rectangles to check
+     * @throws IllegalArgumentException if rects or any rectangle is null
+     * @return the points of all the rectangles
+     */
+    public RangeBatch range(RectHV[] rects) {
+        if (rects == null) throw new IllegalArgumentException("Null values not allowed");
+        long[] codes = new long[rects.length];
+        for (int i = 0; i < rects.length; i++) {
+            if (rects[i] == null) throw new IllegalArgumentException("Null values not allowed");
+            codes[i] = morton((rects[i].xmin() + rects[i].xmax()) / 2, 
+                              (rects[i].ymin() + rects[i].ymax()) / 2);
+        }
+        int[] order = order(codes);
+        int[] offsets = new int[rects.length + 1];
+        IntStream.range(0, order.length).parallel()
+                 .forEach(j -> offsets[order[j] + 1] = rangeCount(root, rects[order[j]]));
+        for (int i = 0; i < rects.length; i++) offsets[i + 1] += offsets[i];
+
+        Point2D[] points = new Point2D[offsets[rects.length]];
+        IntStream.range(0, order.length).parallel().forEach(j -> {
+            int[] next = { offsets[order[j]] };
+            range(root, rects[order[j]], p -> points[next[0]++] = p);
+        });
+        return new RangeBatch(points, offsets);
+    }
+
+    /**
+     * The points found by a batch of range queries: the points in the i-th 
+     * rectangle are {@code points()[offsets()[i]]} up to, but excluding, 
+     * {@code points()[offsets()[i + 1]]}.
+     */
+    public static final class RangeBatch {
+        private final Point2D[] points;
+        private final int[] offsets;
+
+        private RangeBatch(Point2D[] points, int[] offsets) {
+            this.points = points;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Returns the points of all the rectangles, one after the other.
+         * @return the points
+         */
+        public Point2D[] points() {
+            return points;
+        }
+
+        /**
+         * Returns where the points of each rectangle start, with the total at the end.
+         * @return the offsets, one more than the number of rectangles
+         */
+        public int[] offsets() {
+            return offsets;
+        }
+
+        /**
+         * Returns the number of points in the i-th rectangle.
+         * @param i the index of the rectangle
+         * @return the number of points
+         */
+        public int count(int i) {
+            return offsets[i + 1] - offsets[i];
+        }
+    }
+
+    // returns the Z-order (Morton) code of the point, from 16 bits per coordinate 
+    // of the unit square; points outside are clamped to it
+    private static long morton(double x, double y) {
+        long code = 0;
+        long qx = (long) (Math.min(Math.max(x, 0), 1) * 0xffff);
+        long qy = (long) (Math.min(Math.max(y, 0), 1) * 0xffff);
+        for (int b = 15; b >= 0; b--)
+            code = code << 2 | ((qy >> b) & 1) << 1 | ((qx >> b) & 1);
+        return code;
+    }
+
+    // returns the indices of the codes in increasing order of the codes; the 
+    // top bit of a code lands in the sign bit of its key, so it is flipped for 
+    // the signed sort to order the codes as unsigned
+    private static int[] order(long[] codes) {
+        long[] keys = new long[codes.length];
+        for (int i = 0; i < codes.length; i++) keys[i] = (codes[i] << 32 | i) ^ Long.MIN_VALUE;
+        Arrays.sort(keys);
+        int[] order = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) order[i] = (int) keys[i];
+        return order;
+    }
+
     // compares the node with the point according to our kdtree
     private static int compare(Node node, Point2D point) {
         if (node.point.equals(point)) return 0;
@@ -223,7 +593,90 @@ public class KdTree {
 
     // unit tests the code (optional)
     public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Point2D[] points = new Point2D[n];
+        for (int i = 0; i < n; i++) {
+            // a coarse grid, so that there are ties and duplicates
+            points[i] = new Point2D(StdRandom.uniformInt(1000) / 1000.0, 
+                                    StdRandom.uniformInt(1000) / 1000.0);
+        }
+        KdTree built = build(points);
+        KdTree inserted = new KdTree();
+        for (Point2D p : points) inserted.insert(p);
+
+        boolean same = built.size() == inserted.size();
+        for (int i = 0; i < 1000; i++) {
+            Point2D q = new Point2D(StdRandom.uniformInt(1000) / 1000.0, 
+                                    StdRandom.uniformInt(1000) / 1000.0);
+            same &= built.contains(q) == inserted.contains(q);
+            same &= built.nearest(q).distanceTo(q) == inserted.nearest(q).distanceTo(q);
+        }
+        StdOut.println("Test - 1 build same as insert: " + same);
+        StdOut.println("Test - 2 height built: " + height(built.root) 
+                       + ", inserted: " + height(inserted.root));
+
+        // k nearest and radius against a brute force scan of the distinct points
+        Point2D q = new Point2D(0.5, 0.5);
+        PointSET set = new PointSET();
+        for (Point2D p : points) set.insert(p);
+        LinkedList<Point2D> distinct = new LinkedList<>();
+        for (Point2D p : set.range(new RectHV(0, 0, 1, 1))) distinct.add(p);
+        distinct.sort((a, b) -> Double.compare(a.distanceSquaredTo(q), b.distanceSquaredTo(q)));
+
+        boolean knn = true;
+        Iterator<Point2D> expected = distinct.iterator();
+        for (Point2D p : built.nearest(q, 10))
+            knn &= p.distanceSquaredTo(q) == expected.next().distanceSquaredTo(q);
+        int within = 0, expectedWithin = 0;
+        for (Point2D p : built.withinRadius(q, 0.05)) within++;
+        for (Point2D p : distinct) if (p.distanceSquaredTo(q) <= 0.05 * 0.05) expectedWithin++;
+        StdOut.println("Test - 3 k nearest: " + knn);
+        StdOut.println("Test - 4 within radius: " + (within == expectedWithin));
+
+        // batches against single queries
+        Point2D[] queries = new Point2D[1000];
+        RectHV[] rects = new RectHV[1000];
+        for (int i = 0; i < queries.length; i++) {
+            double x = StdRandom.uniformDouble(0, 0.9), y = StdRandom.uniformDouble(0, 0.9);
+            queries[i] = new Point2D(x, y);
+            rects[i] = new RectHV(x, y, x + 0.1, y + 0.1);
+        }
+        Point2D[] nearest = built.nearest(queries);
+        RangeBatch batch = built.range(rects);
+        boolean batches = true;
+        for (int i = 0; i < queries.length; i++) {
+            batches &= nearest[i].equals(built.nearest(queries[i]));
+            int count = 0;
+            for (Point2D p : built.range(rects[i])) count++;
+            batches &= count == batch.count(i);
+        }
+        StdOut.println("Test - 5 batches same as single queries: " + batches);
+
+        // the lazy, callback and counting ranges against the brute force
+        boolean ranges = true;
+        for (int i = 0; i < 100; i++) {
+            double x = StdRandom.uniformDouble(0, 0.5), y = StdRandom.uniformDouble(0, 0.5);
+            RectHV rect = new RectHV(x, y, x + StdRandom.uniformDouble(0, 0.5), 
+                                     y + StdRandom.uniformDouble(0, 0.5));
+            int count = set.rangeCount(rect);
+            int lazy = 0;
+            int[] callback = { 0 };
+            for (Point2D p : built.range(rect)) lazy++;
+            built.range(rect, p -> callback[0]++);
+            ranges &= lazy == count && callback[0] == count;
+            ranges &= built.rangeCount(rect) == count && inserted.rangeCount(rect) == count;
+            ranges &= built.rangeStream(rect).parallel().count() == count;
+        }
+        StdOut.println("Test - 6 lazy, callback, counting and parallel ranges: " + ranges);
+
+        // the upper half of the Z-curve after the lower half
+        int[] order = order(new long[] { morton(1, 1), morton(0, 0), morton(0.4, 0.4) });
+        StdOut.println("Test - 7 Z-order: " + (order[0] == 1 && order[1] == 2 && order[2] == 0));
+    }
 
+    // returns the height of the subtree
+    private static int height(Node x) {
+        return x == null ? 0 : 1 + Math.max(height(x.left), height(x.right));
     }
 
     private static void inorder(Node x) {
@@ -1,5 +1,6 @@
+import java.util.NavigableSet;
 import java.util.TreeSet;
-import java.util.LinkedList;
+import java.util.function.Consumer;
 
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
@@ -64,21 +65,51 @@ public class PointSET {
     }
 
     /**
-     * Returns all the points that are inside the rectangle.
+     * Returns all the points that are inside the rectangle. The points are 
+     * found lazily as it is iterated, so the set must not be changed meanwhile.
      * @param rect the rectangle to check
      * @throws IllegalArgumentException if the rect is null
      * @return returns an iterable 
      */
     public Iterable<Point2D> range(RectHV rect) {
         if (rect == null) throw new IllegalArgumentException("Null values not allowed");
-        LinkedList<Point2D> ls = new LinkedList<>();
+        NavigableSet<Point2D> band = band(rect);
+        return () -> band.stream()
+                         .filter(p -> p.x() >= rect.xmin() && p.x() <= rect.xmax())
+                         .iterator();
+    }
+
+    /**
+     * Calls the action on each point inside the rectangle, without collecting them.
+     * @param rect the rectangle to check
+     * @param action the action to call on each point
+     * @throws IllegalArgumentException if the rect or the action is null
+     */
+    public void range(RectHV rect, Consumer<? super Point2D> action) {
+        if (rect == null || action == null) throw new IllegalArgumentException("Null values not allowed");
+        for (Point2D point : band(rect))
+            if (point.x() >= rect.xmin() && point.x() <= rect.xmax())
+                action.accept(point);
+    }
+
+    /**
+     * Returns the number of points inside the rectangle.
+     * @param rect the rectangle to check
+     * @throws IllegalArgumentException if the rect is null
+     * @return the number of points inside the rectangle
+     */
+    public int rangeCount(RectHV rect) {
+        int[] count = { 0 };
+        range(rect, p -> count[0]++);
+        return count[0];
+    }
+
+    // returns a view of the points between the bottom and top of the rectangle, 
+    // as the points are ordered by y and then x
+    private NavigableSet<Point2D> band(RectHV rect) {
         Point2D lo = new Point2D(rect.xmin(), rect.ymin());
         Point2D hi = new Point2D(rect.xmax(), rect.ymax());
-        for (Point2D point : points.subSet(lo, true, hi, true)) {
-            if (point.x() >= lo.x() && point.x() <= hi.x())
-                ls.add(point);
-        }
-        return ls;
+        return points.subSet(lo, true, hi, true);
     }
 
     /**
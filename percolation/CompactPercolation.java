@@ -0,0 +1,294 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * CompactPercolation, an alternative to {@code Percolation} that uses a single
+ * union find object instead of two. Every root of the union find keeps a pair of
+ * bit flags telling whether its component is connected to the top row and/or the
+ * bottom row, so no virtual sites are needed and there is no backwash.
+ *
+ * It has the same API as {@code Percolation}, so the two can be swapped and
+ * their results compared. As the single union find has no virtual sites, its
+ * components are exactly the clusters of open sites, so it also keeps cluster
+ * statistics (the largest cluster, the cluster size distribution and the number
+ * of spanning clusters) up to date in O(1) per union. The distribution is a
+ * hash table of the sizes present, which are few, so the grid still costs 2
+ * bytes per site over the union find.
+ *
+ * @author Karthikeyan
+ */
+public class CompactPercolation {
+    private static final byte TOP    = 1;  // component connected to the top row
+    private static final byte BOTTOM = 2;  // component connected to the bottom row
+    private int n;                         // size of the grid
+    private boolean[] sites;               // sites in the grid
+    private byte[] flags;                  // top/bottom flags, valid at the roots
+    private int openSites = 0;             // no. of open sites
+    private int clusters = 0;              // no. of clusters
+    private int spanning = 0;              // no. of clusters with both flags
+    private int largest = 0;               // size of the largest cluster
+    private Histogram histogram;           // no. of clusters of each size
+    private Percolation.UF uf;             // union find object
+
+    /**
+     * Creates an n-by-n grid, with all the sites are blocked.
+     *
+     * @param n size of the grid
+     * @throws IllegalArgumentException if n less than 1
+     */
+    public CompactPercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+	this.n = n;
+	sites = new boolean[n * n];
+	flags = new byte[n * n];
+	histogram = new Histogram();
+	uf = new Percolation.UF(n * n);
+    }
+
+    /**
+     * Opens a site if it not open and connect with adjacent opened sites.
+     *
+     * @param row  row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     */
+    public void open(int row, int col) {
+        if (isInvalid(row, col)) throw new IllegalArgumentException();
+	int p = index(row, col);
+	if (sites[p]) return;
+
+	sites[p] = true;
+	openSites++;
+	if (row == 1) flags[p] |= TOP;
+	if (row == n) flags[p] |= BOTTOM;
+	uf.make(p);
+	clusters++;
+	histogram.add(1, 1);
+	if (largest == 0) largest = 1;
+	if (flags[p] == (TOP | BOTTOM)) spanning++;
+
+	if (col > 1 && sites[p - 1])     tryUnion(p, p - 1);
+	if (col < n && sites[p + 1])     tryUnion(p, p + 1);
+	if (row > 1 && sites[p - n])     tryUnion(p, p - n);
+	if (row < n && sites[p + n])     tryUnion(p, p + n);
+    }
+
+    /**
+     * Returns true if the site is open.
+     *
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     * @return {@code true} if the site is open; {@code false} otherwise
+     */
+    public boolean isOpen(int row, int col) {
+	if (isInvalid(row, col)) throw new IllegalArgumentException();
+	return sites[index(row, col)];
+    }
+
+    /**
+     * Returns true if the given site is opened and connected to the top.
+     *
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     * @return {@code true} if the site is opened and connected to the top; {@code false}
+     * otherwise
+     */
+    public boolean isFull(int row, int col) {
+	if (isInvalid(row, col)) throw new IllegalArgumentException();
+	int p = index(row, col);
+	return sites[p] && (flags[uf.find(p)] & TOP) != 0;
+    }
+
+    /**
+     * Returns the number of open sites.
+     *
+     * @return {@code openSites}
+     */
+    public int numberOfOpenSites()
+    {   return openSites;         }
+
+    /**
+     * Returns true if percolates.
+     *
+     * @return {@code true} if the system percolates; {@code false} otherwise
+     */
+    public boolean percolates()
+    {   return spanning > 0;      }
+
+    /**
+     * Returns the number of clusters of open sites.
+     *
+     * @return {@code clusters}
+     */
+    public int numberOfClusters()
+    {   return clusters;          }
+
+    /**
+     * Returns the number of clusters connecting the top row to the bottom row.
+     *
+     * @return {@code spanning}
+     */
+    public int numberOfSpanningClusters()
+    {   return spanning;          }
+
+    /**
+     * Returns the number of open sites in the largest cluster.
+     *
+     * @return {@code largest}
+     */
+    public int largestClusterSize()
+    {   return largest;           }
+
+    /**
+     * Returns the number of clusters with exactly the given number of open sites.
+     *
+     * @param size size of the clusters
+     * @return the number of clusters of that size; 0 if there are none
+     */
+    public int numberOfClusters(int size)
+    {	return histogram.get(size);	}
+
+    /**
+     * Returns the 0-based 1d index for the given 2d row and columns.
+     */
+    private int index(int row, int col)
+    {	return (row - 1) * n + col - 1; }
+
+    /**
+     * Returns true if row or col is out of bounds.
+     *
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @return {@code true} if row or col is out of bounds; {@code false} otherwise
+     */
+    private boolean isInvalid(int row, int col)
+    {	return row < 1 || row > n || col < 1 || col > n;	}
+
+    /**
+     * Unions two opened sites, merges the flags of their roots and updates the
+     * cluster statistics.
+     *
+     * @param p opened site one
+     * @param q opened site two
+     */
+    private void tryUnion(int p, int q) {
+	int i = uf.find(p), j = uf.find(q);
+	if (i == j) return;
+	int size = uf.size(i) + uf.size(j);
+	byte merged = (byte) (flags[i] | flags[j]);
+	if (flags[i] == (TOP | BOTTOM)) spanning--;
+	if (flags[j] == (TOP | BOTTOM)) spanning--;
+	if (merged == (TOP | BOTTOM))   spanning++;
+	histogram.add(uf.size(i), -1);
+	histogram.add(uf.size(j), -1);
+	histogram.add(size, 1);
+	clusters--;
+	if (size > largest) largest = size;
+
+	uf.union(i, j);
+	flags[uf.find(i)] = merged;
+    }
+
+    // the number of clusters of each size present, in an open addressing hash
+    // table with linear probing; a size of 0 marks an empty slot
+    private static final class Histogram {
+	private int[] sizes = new int[16];   // the sizes, a power of two of slots
+	private int[] counts = new int[16];  // no. of clusters of each size
+	private int n;                       // no. of sizes present
+
+	// returns the number of clusters of the given size
+	int get(int size) {
+	    int m = sizes.length - 1;
+	    for (int i = slot(size, m); sizes[i] != 0; i = (i + 1) & m)
+		if (sizes[i] == size) return counts[i];
+	    return 0;
+	}
+
+	// adds delta to the number of clusters of the given size, a positive size,
+	// dropping the size when none are left
+	void add(int size, int delta) {
+	    int m = sizes.length - 1;
+	    int i = slot(size, m);
+	    while (sizes[i] != 0 && sizes[i] != size) i = (i + 1) & m;
+	    if (sizes[i] == 0) {
+		sizes[i] = size;
+		n++;
+	    }
+	    counts[i] += delta;
+	    if (counts[i] == 0)             remove(i);
+	    else if (2 * n > sizes.length) resize(2 * sizes.length);
+	}
+
+	// empties slot i and moves back the sizes after it that probed past it
+	private void remove(int i) {
+	    int m = sizes.length - 1;
+	    for (int j = (i + 1) & m; sizes[j] != 0; j = (j + 1) & m) {
+		int home = slot(sizes[j], m);
+		if (((j - home) & m) >= ((j - i) & m)) {
+		    sizes[i] = sizes[j];
+		    counts[i] = counts[j];
+		    i = j;
+		}
+	    }
+	    sizes[i] = 0;
+	    counts[i] = 0;
+	    n--;
+	}
+
+	private void resize(int capacity) {
+	    int[] oldSizes = sizes, oldCounts = counts;
+	    sizes = new int[capacity];
+	    counts = new int[capacity];
+	    for (int k = 0; k < oldSizes.length; k++) {
+		if (oldSizes[k] == 0) continue;
+		int i = slot(oldSizes[k], capacity - 1);
+		while (sizes[i] != 0) i = (i + 1) & (capacity - 1);
+		sizes[i] = oldSizes[k];
+		counts[i] = oldCounts[k];
+	    }
+	}
+
+	// returns the home slot of the size, m being the number of slots less one
+	private static int slot(int size, int m) {
+	    int h = size * 0x9E3779B9;
+	    return (h ^ (h >>> 16)) & m;
+	}
+    }
+
+    /**
+     * Opens the same random sites in a {@code Percolation} and a
+     * {@code CompactPercolation} and reports whether they ever disagree.
+     */
+    public static void main(String[] args) {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+	Percolation a = new Percolation(n);
+	CompactPercolation b = new CompactPercolation(n);
+	boolean same = true;
+	while (!a.percolates()) {
+	    int row = StdRandom.uniformInt(1, n + 1);
+	    int col = StdRandom.uniformInt(1, n + 1);
+	    a.open(row, col);
+	    b.open(row, col);
+	    same &= a.percolates() == b.percolates()
+		&& a.isFull(row, col) == b.isFull(row, col)
+		&& a.numberOfOpenSites() == b.numberOfOpenSites();
+	}
+	for (int row = 1; row <= n; row++)
+	    for (int col = 1; col <= n; col++)
+		same &= a.isFull(row, col) == b.isFull(row, col);
+	StdOut.println("Test - 1 same results: " + same);
+
+	int sites = 0, clusters = 0, largest = 0;
+	for (int size = 1; size <= n * n; size++) {
+	    sites += size * b.numberOfClusters(size);
+	    clusters += b.numberOfClusters(size);
+	    if (b.numberOfClusters(size) > 0) largest = size;
+	}
+	StdOut.println("Test - 2 histogram consistent: " + (sites == b.numberOfOpenSites()
+	    && clusters == b.numberOfClusters() && largest == b.largestClusterSize()));
+	StdOut.println("Test - 3 clusters: " + b.numberOfClusters() + ", largest: " 
+	    + b.largestClusterSize() + ", spanning: " + b.numberOfSpanningClusters());
+    }
+}
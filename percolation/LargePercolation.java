@@ -0,0 +1,208 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * LargePercolation, a variant of {@code CompactPercolation} for grids with more
+ * than 2^31 sites. Sites are indexed with {@code long}s, the open bits are packed
+ * 64 to a {@code long} and the union find parent and rank data live off-heap in
+ * direct buffers split into fixed size segments, so the garbage collector never
+ * has to scan or move them.
+ *
+ * Each site costs 8 bytes of parent, 1 byte of rank (which also carries the
+ * top/bottom flags of the roots) and 1 bit of open state.
+ *
+ * @author Karthikeyan
+ */
+public class LargePercolation {
+    private static final int SEGMENT_BITS = 27;                  // 2^27 entries per segment
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final byte TOP    = 0x40;                     // root connected to the top row
+    private static final byte BOTTOM = (byte) 0x80;              // root connected to the bottom row
+    private static final byte RANK   = 0x3f;                     // bits of the rank
+
+    private int n;                         // size of the grid
+    private long[] sites;                  // open bits of the sites
+    private LongBuffer[] parent;           // parent links, off-heap
+    private ByteBuffer[] rank;             // rank and top/bottom flags, off-heap
+    private long openSites = 0;            // no. of open sites
+    private boolean percolates = false;    // true once a component has both flags
+
+    /**
+     * Creates an n-by-n grid, with all the sites are blocked.
+     *
+     * @param n size of the grid
+     * @throws IllegalArgumentException if n less than 1 or the grid has more
+     * sites than the open bits can address
+     */
+    public LargePercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+	long size = (long) n * n;
+	if ((size + 63) >>> 6 > Integer.MAX_VALUE) throw new IllegalArgumentException();
+	this.n = n;
+	sites = new long[(int) ((size + 63) >>> 6)];
+
+	int segments = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+	parent = new LongBuffer[segments];
+	rank = new ByteBuffer[segments];
+	for (int i = 0; i < segments; i++) {
+	    int length = (int) Math.min(SEGMENT_SIZE, size - ((long) i << SEGMENT_BITS));
+	    parent[i] = ByteBuffer.allocateDirect(length * 8)
+	                          .order(ByteOrder.nativeOrder()).asLongBuffer();
+	    rank[i] = ByteBuffer.allocateDirect(length);
+	}
+    }
+
+    /**
+     * Opens a site if it not open and connect with adjacent opened sites.
+     *
+     * @param row  row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     */
+    public void open(int row, int col) {
+        if (isInvalid(row, col)) throw new IllegalArgumentException();
+	long p = index(row, col);
+	if (isOpen(p)) return;
+
+	sites[(int) (p >>> 6)] |= 1L << p;
+	openSites++;
+	setParent(p, p);
+	byte r = 0;
+	if (row == 1) r |= TOP;
+	if (row == n) r |= BOTTOM;
+	setRank(p, r);
+
+	if (col > 1 && isOpen(p - 1))     union(p, p - 1);
+	if (col < n && isOpen(p + 1))     union(p, p + 1);
+	if (row > 1 && isOpen(p - n))     union(p, p - n);
+	if (row < n && isOpen(p + n))     union(p, p + n);
+	if ((rank(find(p)) & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * Returns true if the site is open.
+     *
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     * @return {@code true} if the site is open; {@code false} otherwise
+     */
+    public boolean isOpen(int row, int col) {
+	if (isInvalid(row, col)) throw new IllegalArgumentException();
+	return isOpen(index(row, col));
+    }
+
+    /**
+     * Returns true if the given site is opened and connected to the top.
+     *
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     * @throws IllegalArgumentException if row or col are out of bounds
+     * @return {@code true} if the site is opened and connected to the top; {@code false}
+     * otherwise
+     */
+    public boolean isFull(int row, int col) {
+	if (isInvalid(row, col)) throw new IllegalArgumentException();
+	long p = index(row, col);
+	return isOpen(p) && (rank(find(p)) & TOP) != 0;
+    }
+
+    /**
+     * Returns the number of open sites.
+     *
+     * @return {@code openSites}
+     */
+    public long numberOfOpenSites()
+    {   return openSites;         }
+
+    /**
+     * Returns true if percolates.
+     *
+     * @return {@code true} if the system percolates; {@code false} otherwise
+     */
+    public boolean percolates()
+    {   return percolates;        }
+
+    // returns the 0-based 1d index for the given 2d row and columns
+    private long index(int row, int col)
+    {	return (long) (row - 1) * n + col - 1; }
+
+    // returns true if row or col is out of bounds
+    private boolean isInvalid(int row, int col)
+    {	return row < 1 || row > n || col < 1 || col > n;	}
+
+    // returns true if the site with the given index is open
+    private boolean isOpen(long p)
+    {	return (sites[(int) (p >>> 6)] & (1L << p)) != 0; }
+
+    private long parent(long p)
+    {	return parent[(int) (p >>> SEGMENT_BITS)].get((int) (p & SEGMENT_MASK)); }
+
+    private void setParent(long p, long q)
+    {	parent[(int) (p >>> SEGMENT_BITS)].put((int) (p & SEGMENT_MASK), q); }
+
+    private byte rank(long p)
+    {	return rank[(int) (p >>> SEGMENT_BITS)].get((int) (p & SEGMENT_MASK)); }
+
+    private void setRank(long p, byte r)
+    {	rank[(int) (p >>> SEGMENT_BITS)].put((int) (p & SEGMENT_MASK), r); }
+
+    // returns the root of p, halving the path on the way
+    private long find(long p) {
+	long q = parent(p);
+	while (q != p) {
+	    long grand = parent(q);
+	    setParent(p, grand);
+	    p = grand;
+	    q = parent(p);
+	}
+	return p;
+    }
+
+    // links the roots of p and q by rank and merges their flags
+    private void union(long p, long q) {
+	long i = find(p), j = find(q);
+	if (i == j) return;
+	byte ri = rank(i), rj = rank(j);
+	byte flags = (byte) ((ri | rj) & (TOP | BOTTOM));
+	int rankI = ri & RANK, rankJ = rj & RANK;
+	if (rankI < rankJ) {
+	    setParent(i, j);
+	    setRank(j, (byte) (rankJ | flags));
+	}
+	else {
+	    setParent(j, i);
+	    if (rankI == rankJ) rankI++;
+	    setRank(i, (byte) (rankI | flags));
+	}
+    }
+
+    /**
+     * Opens the same random sites in a {@code Percolation} and a
+     * {@code LargePercolation} and reports whether they ever disagree.
+     */
+    public static void main(String[] args) {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+	Percolation a = new Percolation(n);
+	LargePercolation b = new LargePercolation(n);
+	boolean same = true;
+	while (!a.percolates()) {
+	    int row = StdRandom.uniformInt(1, n + 1);
+	    int col = StdRandom.uniformInt(1, n + 1);
+	    a.open(row, col);
+	    b.open(row, col);
+	    same &= a.percolates() == b.percolates()
+		&& a.isFull(row, col) == b.isFull(row, col)
+		&& a.numberOfOpenSites() == b.numberOfOpenSites();
+	}
+	for (int row = 1; row <= n; row++)
+	    for (int col = 1; col <= n; col++)
+		same &= a.isFull(row, col) == b.isFull(row, col);
+	StdOut.println("Test - 1 same results: " + same);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * The {@code Lattice} class describes the topology of a percolation grid: its
+ * number of dimensions and the offsets of the neighbours of a site. Coordinates
+ * are ordered row first, so an offset {@code {-1, 0}} is the site above.
+ *
+ * @author Karthikeyan
+ */
+public final class Lattice {
+    /** 2D square lattice, left/right/up/down neighbours. */
+    public static final Lattice SQUARE_4 = new Lattice(2, new int[][] {
+	{ 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 }
+    });
+
+    /** 2D square lattice, including the diagonal neighbours. */
+    public static final Lattice SQUARE_8 = new Lattice(2, new int[][] {
+	{ 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 },
+	{ -1, -1 }, { -1, 1 }, { 1, -1 }, { 1, 1 }
+    });
+
+    /**
+     * 2D triangular lattice (equivalently, a tiling of hexagonal cells) in axial
+     * coordinates: the square neighbours plus one of the diagonals.
+     */
+    public static final Lattice TRIANGULAR = new Lattice(2, new int[][] {
+	{ 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 }, { -1, -1 }, { 1, 1 }
+    });
+
+    /** 3D cubic lattice, the six face neighbours. */
+    public static final Lattice CUBIC_6 = new Lattice(3, new int[][] {
+	{ 0, 0, -1 }, { 0, 0, 1 }, { 0, -1, 0 }, { 0, 1, 0 }, { -1, 0, 0 }, { 1, 0, 0 }
+    });
+
+    private final int dimensions;  // no. of coordinates of a site
+    private final int[][] offsets; // offsets of the neighbours
+
+    /**
+     * Creates a lattice with the given neighbour offsets. Every offset must have
+     * one entry per dimension, each in [-1, 1], and not all zero.
+     *
+     * @param dimensions number of dimensions
+     * @param offsets the offsets of the neighbours of a site
+     * @throws IllegalArgumentException if dimensions less than 1 or an offset is
+     * invalid
+     */
+    public Lattice(int dimensions, int[][] offsets) {
+	if (dimensions <= 0 || offsets == null) throw new IllegalArgumentException();
+	this.dimensions = dimensions;
+	this.offsets = new int[offsets.length][];
+	for (int i = 0; i < offsets.length; i++) {
+	    int[] offset = offsets[i];
+	    if (offset == null || offset.length != dimensions) throw new IllegalArgumentException();
+	    boolean zero = true;
+	    for (int d : offset) {
+		if (d < -1 || d > 1) throw new IllegalArgumentException();
+		zero &= d == 0;
+	    }
+	    if (zero) throw new IllegalArgumentException();
+	    this.offsets[i] = offset.clone();
+	}
+    }
+
+    /**
+     * Returns the number of dimensions.
+     *
+     * @return {@code dimensions}
+     */
+    public int dimensions()
+    {   return dimensions;     }
+
+    /**
+     * Returns the flat index deltas of the neighbours in a grid where coordinate
+     * {@code k} has the given stride.
+     *
+     * @param strides stride of each coordinate
+     * @return the flat index deltas of the neighbours
+     */
+    int[] deltas(int[] strides) {
+	int[] deltas = new int[offsets.length];
+	for (int i = 0; i < offsets.length; i++)
+	    for (int k = 0; k < dimensions; k++)
+		deltas[i] += offsets[i][k] * strides[k];
+	return deltas;
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * LatticePercolation, percolation on an n-by-...-by-n grid of any {@code Lattice}
+ * topology (2D 4- or 8-connected, triangular, 3D cubic, ...). The system
+ * percolates when a site in the first row (coordinate 0 is 1) is connected to a
+ * site in the last row (coordinate 0 is n).
+ *
+ * The grid is stored with a border of sites that are never opened, so the
+ * neighbours of every site are at fixed flat index deltas, precomputed once, and
+ * {@code open} needs no bounds checks on them. Like {@code CompactPercolation},
+ * the roots of the union find carry top/bottom flags instead of virtual sites.
+ *
+ * @author Karthikeyan
+ */
+public class LatticePercolation {
+    private static final byte TOP    = 1;  // component connected to the first row
+    private static final byte BOTTOM = 2;  // component connected to the last row
+    private int n;                         // size of the grid
+    private int dimensions;                // no. of coordinates of a site
+    private int[] strides;                 // stride of each coordinate, with the border
+    private int[] deltas;                  // flat index deltas of the neighbours
+    private boolean[] sites;               // sites in the grid, with the border
+    private byte[] flags;                  // top/bottom flags, valid at the roots
+    private int openSites = 0;             // no. of open sites
+    private boolean percolates = false;    // true once a component has both flags
+    private Percolation.UF uf;             // union find object
+
+    /**
+     * Creates a grid of the given topology with n sites along every dimension,
+     * with all the sites are blocked.
+     *
+     * @param lattice topology of the grid
+     * @param n size of the grid
+     * @throws IllegalArgumentException if lattice is null, n less than 1 or the
+     * grid is too large to index with an int
+     */
+    public LatticePercolation(Lattice lattice, int n) {
+	if (lattice == null || n <= 0) throw new IllegalArgumentException();
+	this.n = n;
+	dimensions = lattice.dimensions();
+	strides = new int[dimensions];
+	long size = 1;
+	for (int k = dimensions - 1; k >= 0; k--) {
+	    strides[k] = (int) size;
+	    size *= n + 2;
+	    if (size > Integer.MAX_VALUE) throw new IllegalArgumentException();
+	}
+	deltas = lattice.deltas(strides);
+	sites = new boolean[(int) size];
+	flags = new byte[(int) size];
+	uf = new Percolation.UF((int) size);
+    }
+
+    /**
+     * Returns the flat index of the site with the given coordinates.
+     *
+     * @param coordinates coordinates of the site (1-based), row first
+     * @throws IllegalArgumentException if the number of coordinates is not the
+     * number of dimensions or a coordinate is out of bounds
+     * @return the flat index of the site
+     */
+    public int site(int... coordinates) {
+	if (coordinates.length != dimensions) throw new IllegalArgumentException();
+	int p = 0;
+	for (int k = 0; k < dimensions; k++) {
+	    if (coordinates[k] < 1 || coordinates[k] > n) throw new IllegalArgumentException();
+	    p += coordinates[k] * strides[k];
+	}
+	return p;
+    }
+
+    /**
+     * Opens a site if it not open and connect with adjacent opened sites.
+     *
+     * @param p flat index of the site, see {@link #site}
+     * @throws IllegalArgumentException if p is not a site of the grid
+     */
+    public void open(int p) {
+	validate(p);
+	if (sites[p]) return;
+
+	sites[p] = true;
+	openSites++;
+	uf.make(p);
+	int row = p / strides[0];
+	flags[p] = 0;
+	if (row == 1) flags[p] |= TOP;
+	if (row == n) flags[p] |= BOTTOM;
+
+	for (int delta : deltas)
+	    if (sites[p + delta]) tryUnion(p, p + delta);
+	if (flags[uf.find(p)] == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * Returns true if the site is open.
+     *
+     * @param p flat index of the site, see {@link #site}
+     * @throws IllegalArgumentException if p is not a site of the grid
+     * @return {@code true} if the site is open; {@code false} otherwise
+     */
+    public boolean isOpen(int p) {
+	validate(p);
+	return sites[p];
+    }
+
+    /**
+     * Returns true if the given site is opened and connected to the first row.
+     *
+     * @param p flat index of the site, see {@link #site}
+     * @throws IllegalArgumentException if p is not a site of the grid
+     * @return {@code true} if the site is opened and connected to the first row;
+     * {@code false} otherwise
+     */
+    public boolean isFull(int p) {
+	validate(p);
+	return sites[p] && (flags[uf.find(p)] & TOP) != 0;
+    }
+
+    /**
+     * Returns the number of open sites.
+     *
+     * @return {@code openSites}
+     */
+    public int numberOfOpenSites()
+    {   return openSites;         }
+
+    /**
+     * Returns true if percolates.
+     *
+     * @return {@code true} if the system percolates; {@code false} otherwise
+     */
+    public boolean percolates()
+    {   return percolates;        }
+
+    /**
+     * Blocks all the sites again, reusing the existing arrays.
+     */
+    public void reset() {
+	Arrays.fill(sites, false);
+	openSites = 0;
+	percolates = false;
+    }
+
+    // throws if p is not a site of the grid, that is, out of range or on the border
+    private void validate(int p) {
+	if (p < 0 || p >= sites.length) throw new IllegalArgumentException();
+	for (int k = 0; k < dimensions; k++) {
+	    int c = p / strides[k] % (n + 2);
+	    if (c < 1 || c > n) throw new IllegalArgumentException();
+	}
+    }
+
+    // unions two opened sites and merges the flags of their roots
+    private void tryUnion(int p, int q) {
+	byte merged = (byte) (flags[uf.find(p)] | flags[uf.find(q)]);
+	uf.union(p, q);
+	flags[uf.find(p)] = merged;
+    }
+
+    /**
+     * Test client, takes n and prints the estimated threshold of every lattice.
+     * On {@code SQUARE_4} it also checks the results against {@code Percolation}.
+     */
+    public static void main(String[] args) {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+	Percolation a = new Percolation(n);
+	LatticePercolation b = new LatticePercolation(Lattice.SQUARE_4, n);
+	boolean same = true;
+	while (!a.percolates()) {
+	    int row = StdRandom.uniformInt(1, n + 1);
+	    int col = StdRandom.uniformInt(1, n + 1);
+	    a.open(row, col);
+	    b.open(b.site(row, col));
+	    same &= a.percolates() == b.percolates()
+		&& a.isFull(row, col) == b.isFull(b.site(row, col));
+	}
+	StdOut.println("Test - 1 same results as Percolation: " + same);
+
+	String[] names = { "SQUARE_4", "SQUARE_8", "TRIANGULAR", "CUBIC_6" };
+	Lattice[] lattices = { Lattice.SQUARE_4, Lattice.SQUARE_8, Lattice.TRIANGULAR, Lattice.CUBIC_6 };
+	for (int i = 0; i < lattices.length; i++) {
+	    int m = lattices[i].dimensions() == 3 ? Math.max(1, n / 4) : n;
+	    LatticePercolation percolation = new LatticePercolation(lattices[i], m);
+	    int[] coordinates = new int[lattices[i].dimensions()];
+	    while (!percolation.percolates()) {
+		for (int k = 0; k < coordinates.length; k++)
+		    coordinates[k] = StdRandom.uniformInt(1, m + 1);
+		percolation.open(percolation.site(coordinates));
+	    }
+	    double sites = Math.pow(m, coordinates.length);
+	    StdOut.println(names[i] + " threshold: " + percolation.numberOfOpenSites() / sites);
+	}
+    }
+}
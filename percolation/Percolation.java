@@ -1,4 +1,7 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF; 
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
 /**
  * Percolation, given a composite systems comprised of randomly distributed
@@ -17,13 +20,13 @@ public class Percolation {
     private int openSites = 0;         // no. of open sites
     private int virtualTop; 	       // virtual top 
     private int virtualBtm;	       // virtual bottom
-    private WeightedQuickUnionUF uf1;  // union find object 1
-    private WeightedQuickUnionUF uf2;  // union find object 2
+    private UF uf1;                    // union find object 1
+    private UF uf2;                    // union find object 2
 	
     /** 
      * Creates an n-by-n grid, with all the sites are blocked and initialises all the 
-     * object and connects the virtual top to the top n sites and the virtual bottom 
-     * to the bottom n sites.
+     * object. The top and bottom sites are connected to the virtual top and the 
+     * virtual bottom as they are opened.
      *
      * @param n size of the grid 
      * @throws IllegalArgumentException if n less than 1
@@ -32,17 +35,24 @@ public class Percolation {
         if (n <= 0) throw new IllegalArgumentException();
 	this.n = n; 
 	sites = new boolean[n * n + 1]; 
-	uf1 = new WeightedQuickUnionUF(n * n + 2); 
-	uf2 = new WeightedQuickUnionUF(n * n + 1);	
+	uf1 = new UF(n * n + 2); 
+	uf2 = new UF(n * n + 1);	
 	virtualTop = 0; 
 	virtualBtm = n * n + 1;
-	// connects the top and bottom sites to the virtual top and the virtual bottom.
-	for (int i = 1; i <= n; i++) {
-	    uf1.union(virtualTop, i); 
-	    uf1.union(virtualBtm, n * n - i + 1);
-	    uf2.union(virtualTop, i); 
-	}
+	reset();
     } 
+
+    /**
+     * Blocks all the sites again, reusing the existing arrays so that a trial
+     * can be repeated without allocating a new grid.
+     */
+    public void reset() {
+	Arrays.fill(sites, false);
+	openSites = 0;
+	uf1.make(virtualTop);
+	uf1.make(virtualBtm);
+	uf2.make(virtualTop);
+    }
 	
     /**
      * Opens a site if it not open and connect with adjacent opened sites.
@@ -53,18 +63,55 @@ public class Percolation {
      */	
     public void open(int row, int col) {
         if (isInvalid(row, col)) throw new IllegalArgumentException();
-	int p = index(row, col); 
+	openSite(index(row, col), row, col); 
+    }
+
+    /**
+     * Opens all the given sites. The whole batch is validated before any site is 
+     * opened, then the sites are opened in row-major order so that the neighbours 
+     * looked up by consecutive sites are close together in memory.
+     *
+     * @param rows row indices of the sites (1-based) 
+     * @param cols column indices of the sites (1-based) 
+     * @throws IllegalArgumentException if rows or cols is null, their lengths 
+     * differ or any row or col is out of bounds
+     */
+    public void openAll(int[] rows, int[] cols) {
+	if (rows == null || cols == null || rows.length != cols.length) 
+	    throw new IllegalArgumentException();
+	int[] batch = new int[rows.length];
+	for (int i = 0; i < batch.length; i++) {
+	    if (isInvalid(rows[i], cols[i])) throw new IllegalArgumentException();
+	    batch[i] = index(rows[i], cols[i]);
+	}
+	Arrays.sort(batch);
+	for (int p : batch) 
+	    openSite(p, (p - 1) / n + 1, (p - 1) % n + 1);
+    }
+
+    /**
+     * Opens the site if it is not open and connects it with the adjacent opened 
+     * sites. The row and col must be valid and match the index.
+     *
+     * @param p index of the site 
+     * @param row row index of the site (1-based)
+     * @param col column index of the site (1-based)
+     */
+    private void openSite(int p, int row, int col) {
 	if (sites[p]) return; 
 		
 	sites[p] = true; 
 	openSites++;
-	int left = index(row, col - 1), right = index(row, col + 1); 
-	int up  = index(row - 1, col), down = index(row + 1, col);
+	uf1.make(p);
+	uf2.make(p);
+	// connects the top and bottom sites to the virtual top and the virtual bottom.
+	if (row == 1) tryUnion(p, virtualTop);
+	if (row == n) uf1.union(p, virtualBtm);
 		
-	if (left != -1 && isOpen(row, col - 1))  tryUnion(p, left);
-	if (right != -1 && isOpen(row, col + 1)) tryUnion(p, right);
-	if (up != -1 && isOpen(row - 1, col))    tryUnion(p, up);
-	if (down != -1 && isOpen(row + 1, col))  tryUnion(p, down);
+	if (col > 1 && sites[p - 1])  tryUnion(p, p - 1);
+	if (col < n && sites[p + 1])  tryUnion(p, p + 1);
+	if (row > 1 && sites[p - n])  tryUnion(p, p - n);
+	if (row < n && sites[p + n])  tryUnion(p, p + n);
     }
 	
     /**
@@ -109,10 +156,8 @@ public class Percolation {
      *
      * @return {@code true} if the system percolates; {@code false} otherwise
      */	  
-    public boolean percolates() {	
-	if (n == 1) return isOpen(1, 1);
-	return uf1.find(virtualTop) == uf1.find(virtualBtm);  
-    }
+    public boolean percolates() 
+    {	return uf1.find(virtualTop) == uf1.find(virtualBtm);  }
 	
     /**
      * Returns the 1d index for the given 2d row and columns.
@@ -141,5 +186,65 @@ public class Percolation {
     private void tryUnion(int p, int q) 
     {	uf1.union(p, q); uf2.union(p, q); }	
 
-    public static void main(String[] args) {}		
+    // weighted quick union with path halving, whose sites are (re)initialised 
+    // one at a time as they are opened
+    static class UF {
+	private int[] parent;  // parent links
+	private int[] size;    // size of the component rooted at the site
+
+	UF(int n) {
+	    parent = new int[n];
+	    size = new int[n];
+	}
+
+	// makes p a component of its own
+	void make(int p) {
+	    parent[p] = p;
+	    size[p] = 1;
+	}
+
+	int find(int p) {
+	    while (p != parent[p]) {
+		parent[p] = parent[parent[p]];
+		p = parent[p];
+	    }
+	    return p;
+	}
+
+	// returns the size of the component, valid if p is a root
+	int size(int p) {
+	    return size[p];
+	}
+
+	void union(int p, int q) {
+	    int i = find(p), j = find(q);
+	    if (i == j) return;
+	    if (size[i] < size[j]) { parent[i] = j; size[j] += size[i]; }
+	    else                   { parent[j] = i; size[i] += size[j]; }
+	}
+    }
+
+    /**
+     * Opens the same random sites one at a time and as a batch and reports 
+     * whether the two grids agree.
+     */
+    public static void main(String[] args) {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+	int m = n * n * 6 / 10;
+	int[] rows = new int[m], cols = new int[m];
+	Percolation a = new Percolation(n);
+	for (int i = 0; i < m; i++) {
+	    rows[i] = StdRandom.uniformInt(1, n + 1);
+	    cols[i] = StdRandom.uniformInt(1, n + 1);
+	    a.open(rows[i], cols[i]);
+	}
+	Percolation b = new Percolation(n);
+	b.openAll(rows, cols);
+	boolean same = a.percolates() == b.percolates() 
+	    && a.numberOfOpenSites() == b.numberOfOpenSites();
+	for (int row = 1; row <= n; row++)
+	    for (int col = 1; col <= n; col++)
+		same &= a.isFull(row, col) == b.isFull(row, col);
+	StdOut.println("Test - 1 openAll same results: " + same);
+    }		
 }
@@ -1,3 +1,9 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.StdStats;
 import edu.princeton.cs.algs4.StdOut;
@@ -30,21 +36,109 @@ public class PercolationStats {
      * @throws IllegalArgumentException if n or trials less than 1
      */
     public PercolationStats(int n, int trials) {
-	if (n <= 0 || trials <= 0) throw new IllegalArgumentException();
+	this(n, trials, (IntBinaryOperator) StdRandom::uniformInt);
+    } 
+
+    /**
+     * Performs independent trials on an n-by-n grid, drawing random numbers from 
+     * the given generator instead of the shared {@code StdRandom}, so that the 
+     * results are reproducible from its seed and threads do not contend.
+     *
+     * @param n size of the grid
+     * @param trials number of experiments 
+     * @param random the random generator
+     * @throws IllegalArgumentException if n or trials less than 1 or random is null
+     */
+    public PercolationStats(int n, int trials, RandomGenerator random) {
+	this(n, trials, random == null ? null : (IntBinaryOperator) random::nextInt);
+    } 
+
+    // performs the trials sequentially with the given source of random ints
+    private PercolationStats(int n, int trials, IntBinaryOperator uniform) {
+	if (n <= 0 || trials <= 0 || uniform == null) throw new IllegalArgumentException();
 	double[] results = new double[trials]; 
 	t = trials;	
-	for (int i = 0; i < trials; i++) { 
-	    Percolation percolation = new Percolation(n); 		
-	    while (!percolation.percolates()) {
-	        int p = StdRandom.uniformInt(1, n + 1); 
-		int q = StdRandom.uniformInt(1, n + 1); 
-		percolation.open(p, q); 
-	    }  			
-	    results[i] = percolation.numberOfOpenSites() * 1.0 / (n * n);
-	} 		
+	int[] sites = sites(n);
+	Percolation percolation = new Percolation(n);
+	for (int i = 0; i < trials; i++) 
+	    results[i] = trial(percolation, n, sites, uniform);
 	mean   = StdStats.mean(results); 
 	stddev = StdStats.stddev(results); 
     } 
+
+    /**
+     * Performs independent trials on an n-by-n grid in parallel. Every trial gets
+     * its own random stream split from {@code seed}, so the results only depend on
+     * the seed and not on the number of threads or how the trials are scheduled.
+     *
+     * @param n size of the grid
+     * @param trials number of experiments 
+     * @param seed seed of the random streams
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if n, trials or threads less than 1
+     */
+    public PercolationStats(int n, int trials, long seed, int threads) {
+	if (n <= 0 || trials <= 0 || threads <= 0) throw new IllegalArgumentException();
+	double[] results = new double[trials]; 
+	SplittableRandom[] randoms = new SplittableRandom[trials];
+	SplittableRandom random = new SplittableRandom(seed);
+	for (int i = 0; i < trials; i++) randoms[i] = random.split();
+	t = trials;
+
+	// every worker thread reuses its own grid and sites across its trials; the 
+	// sites are put back in order before each trial, so that its permutation 
+	// does not depend on the trials the thread ran before
+	ThreadLocal<Percolation> percolations = ThreadLocal.withInitial(() -> new Percolation(n));
+	ThreadLocal<int[]> sites = ThreadLocal.withInitial(() -> new int[n * n]);
+	ForkJoinPool pool = new ForkJoinPool(threads);
+	try {
+	    pool.submit(() -> IntStream.range(0, trials).parallel()
+	                               .forEach(i -> results[i] = trial(percolations.get(), n, 
+	                                                                identity(sites.get()), 
+	                                                                randoms[i]::nextInt)))
+	        .join();
+	}
+	finally {
+	    pool.shutdown();
+	}
+	mean   = StdStats.mean(results); 
+	stddev = StdStats.stddev(results); 
+    }
+
+    /**
+     * Runs a single experiment. The sites are opened in the order of a random 
+     * permutation of {@code sites}, shuffled lazily (Fisher-Yates) as the trial 
+     * goes, so only blocked sites are drawn and every draw opens a site. Any 
+     * permutation left over from a previous trial is a valid starting point. 
+     *
+     * @param percolation the grid, reset before the trial
+     * @param n size of the grid
+     * @param sites the 0-based indices of all the sites, in any order
+     * @param uniform returns a random int in [lo, hi) 
+     * @return the fraction of the sites opened when the system percolates
+     */
+    static double trial(Percolation percolation, int n, int[] sites, IntBinaryOperator uniform) {
+	percolation.reset(); 		
+	for (int i = 0; !percolation.percolates(); i++) {
+	    int j = uniform.applyAsInt(i, sites.length); 
+	    int site = sites[j]; 
+	    sites[j] = sites[i]; 
+	    sites[i] = site; 
+	    percolation.open(site / n + 1, site % n + 1); 
+	}  			
+	return percolation.numberOfOpenSites() * 1.0 / (n * n);
+    }
+
+    // returns the 0-based indices of the sites of an n-by-n grid
+    static int[] sites(int n) {
+	return identity(new int[n * n]);
+    }
+
+    // puts the indices back in order and returns them
+    private static int[] identity(int[] sites) {
+	for (int i = 0; i < sites.length; i++) sites[i] = i;
+	return sites;
+    }
 	
     /**
      * Returns the sample mean of the percolation threshold.
@@ -84,12 +178,26 @@ public class PercolationStats {
     public static void main(String[] args) {  
 	int n = Integer.parseInt(args[0]); 
 	int trials = Integer.parseInt(args[1]); 
-	PercolationStats stats = new PercolationStats(n, trials);
+	PercolationStats stats;
+	// optional: seed and number of threads for the parallel mode
+	if (args.length > 3) 
+	    stats = new PercolationStats(n, trials, Long.parseLong(args[2]), Integer.parseInt(args[3]));
+	else 
+	    stats = new PercolationStats(n, trials);
 	double lo = stats.confidenceLo(); 
 	double hi = stats.confidenceHi();
 		
 	StdOut.println("mean                       = " + stats.mean()); 
 	StdOut.println("stddev                     = " + stats.stddev()); 
 	StdOut.println("95% of confidence interval = [" + lo + ", " + hi + "]"); 	
+
+	// the parallel mode must give the same results for a seed whatever the threads
+	if (args.length > 3) {
+	    long seed = Long.parseLong(args[2]);
+	    PercolationStats one = new PercolationStats(n, trials, seed, 1);
+	    PercolationStats many = new PercolationStats(n, trials, seed, 4);
+	    StdOut.println("same results with 1 and 4 threads: " 
+	                   + (one.mean() == many.mean() && one.stddev() == many.stddev()));
+	}
     }
 }
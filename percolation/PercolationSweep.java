@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * PercolationSweep - estimates the probability that an n-by-n grid percolates
+ * when a fraction p of its sites are open, for a range of grid sizes and open
+ * fractions at once.
+ *
+ * A single random opening order answers the question for every p: the grid
+ * with a fraction p of the sites open percolates if and only if the order made
+ * it percolate after opening at most p * n^2 sites. So every trial only runs up
+ * to its percolation threshold, the thresholds are sorted, and each (n, p) cell
+ * is a binary search over them. The grid and the sites are reused across the
+ * trials of the same n.
+ *
+ * @author Karthikeyan
+ */
+public class PercolationSweep {
+    private int[] ns;                // grid sizes
+    private double[] ps;             // open fractions
+    private int trials;              // no. of experiments per grid size
+    private double[][] probability;  // probability[i][j] for ns[i] and ps[j]
+
+    /**
+     * Performs the sweep.
+     *
+     * @param ns the grid sizes
+     * @param ps the fractions of open sites, each in [0, 1]
+     * @param trials number of experiments per grid size
+     * @throws IllegalArgumentException if a grid size or trials less than 1 or
+     * a fraction is outside [0, 1]
+     */
+    public PercolationSweep(int[] ns, double[] ps, int trials) {
+	if (ns == null || ps == null || trials <= 0) throw new IllegalArgumentException();
+	for (int n : ns) if (n <= 0) throw new IllegalArgumentException();
+	for (double p : ps) if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException();
+	this.ns = ns.clone();
+	this.ps = ps.clone();
+	this.trials = trials;
+	probability = new double[ns.length][ps.length];
+
+	for (int i = 0; i < ns.length; i++) {
+	    int n = ns[i];
+	    int[] sites = PercolationStats.sites(n);
+	    Percolation percolation = new Percolation(n);
+	    int[] thresholds = new int[trials];  // no. of open sites at percolation
+	    for (int t = 0; t < trials; t++) {
+		PercolationStats.trial(percolation, n, sites, StdRandom::uniformInt);
+		thresholds[t] = percolation.numberOfOpenSites();
+	    }
+	    Arrays.sort(thresholds);
+	    for (int j = 0; j < ps.length; j++) {
+		int open = (int) Math.round(ps[j] * n * n);
+		probability[i][j] = countAtMost(thresholds, open) * 1.0 / trials;
+	    }
+	}
+    }
+
+    // returns the number of values in the sorted array that are at most key
+    private static int countAtMost(int[] a, int key) {
+	int lo = 0, hi = a.length;
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (a[mid] <= key) lo = mid + 1;
+	    else               hi = mid;
+	}
+	return lo;
+    }
+
+    /**
+     * Returns the estimated probability that the grid percolates.
+     *
+     * @param i index of the grid size
+     * @param j index of the open fraction
+     * @throws IndexOutOfBoundsException if i or j is out of bounds
+     * @return the fraction of the trials of {@code ns[i]} that percolate with a
+     * fraction {@code ps[j]} of the sites open
+     */
+    public double probability(int i, int j)
+    {	return probability[i][j];	}
+
+    /**
+     * Prints the results to the standard output as CSV, one row per (n, p) cell.
+     */
+    public void printCsv() {
+	StdOut.println("n,p,trials,probability");
+	for (int i = 0; i < ns.length; i++)
+	    for (int j = 0; j < ps.length; j++)
+		StdOut.println(ns[i] + "," + ps[j] + "," + trials + "," + probability[i][j]);
+    }
+
+    /**
+     * Test client, takes a comma separated list of grid sizes, the lowest and
+     * the highest open fraction, the number of steps between them and the number
+     * of trials, and prints the CSV.
+     */
+    public static void main(String[] args) {
+	String[] sizes = args[0].split(",");
+	int[] ns = new int[sizes.length];
+	for (int i = 0; i < ns.length; i++) ns[i] = Integer.parseInt(sizes[i]);
+	double lo = Double.parseDouble(args[1]);
+	double hi = Double.parseDouble(args[2]);
+	int steps = Integer.parseInt(args[3]);
+	int trials = Integer.parseInt(args[4]);
+
+	double[] ps = new double[steps];
+	for (int j = 0; j < steps; j++)
+	    ps[j] = steps == 1 ? lo : lo + (hi - lo) * j / (steps - 1);
+	new PercolationSweep(ns, ps, trials).printCsv();
+    }
+}
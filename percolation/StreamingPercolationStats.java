@@ -0,0 +1,133 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * StreamingPercolationStats - estimates the percolation threshold like
+ * {@code PercolationStats}, but without fixing the number of trials up front.
+ * The mean and variance are kept as running values (Welford's method) in O(1)
+ * memory and trials are run until the half-width of the 95% confidence interval
+ * drops below a target precision, the time budget runs out, or the listener
+ * asks to stop.
+ *
+ * @author Karthikeyan
+ */
+public class StreamingPercolationStats {
+    private static final double CONFIDENCE_95 = 1.96;
+    private static final int MIN_TRIALS = 10;  // trials before the precision is trusted
+    private double mean;      // running mean
+    private double m2;        // running sum of squared differences from the mean
+    private int t;            // no of experiments
+
+    /**
+     * Listener of the interim estimates, called after every trial.
+     */
+    public interface Listener {
+        /**
+         * Receives the estimate after a trial.
+         *
+         * @param stats the estimate so far
+         * @return {@code true} to keep going; {@code false} to stop early
+         */
+        boolean update(StreamingPercolationStats stats);
+    }
+
+    /**
+     * Performs trials on an n-by-n grid until the half-width of the 95% confidence
+     * interval is at most {@code precision} or {@code millis} milliseconds have
+     * passed, whichever comes first.
+     *
+     * @param n size of the grid
+     * @param precision target half-width of the 95% confidence interval
+     * @param millis time budget in milliseconds
+     * @param listener receives the interim estimates; may be null
+     * @throws IllegalArgumentException if n or millis less than 1 or precision
+     * is negative
+     */
+    public StreamingPercolationStats(int n, double precision, long millis, Listener listener) {
+	if (n <= 0 || millis <= 0 || !(precision >= 0)) throw new IllegalArgumentException();
+	long deadline = System.currentTimeMillis() + millis;
+	int[] sites = PercolationStats.sites(n);
+	Percolation percolation = new Percolation(n);
+	do {
+	    add(PercolationStats.trial(percolation, n, sites, StdRandom::uniformInt));
+	    if (listener != null && !listener.update(this)) return;
+	} while ((t < MIN_TRIALS || halfWidth() > precision)
+	         && System.currentTimeMillis() < deadline);
+    }
+
+    // adds the result of a trial to the running mean and variance
+    private void add(double x) {
+	t++;
+	double delta = x - mean;
+	mean += delta / t;
+	m2 += delta * (x - mean);
+    }
+
+    /**
+     * Returns the number of trials performed so far.
+     *
+     * @return {@code t}
+     */
+    public int trials()
+    {   return t;      }
+
+    /**
+     * Returns the sample mean of the percolation threshold.
+     *
+     * @return {@code mean}
+     */
+    public double mean()
+    {   return mean;   }
+
+    /**
+     * Returns the sample standard deviation of the percolation threshold.
+     *
+     * @return the sample standard deviation; {@code NaN} if less than two trials
+     */
+    public double stddev()
+    {	return t < 2 ? Double.NaN : Math.sqrt(m2 / (t - 1));	 }
+
+    /**
+     * Returns the half-width of the 95% confidence interval.
+     *
+     * @return the half-width; {@code NaN} if less than two trials
+     */
+    public double halfWidth()
+    {	return CONFIDENCE_95 * stddev() / Math.sqrt(t); }
+
+    /**
+     * Returns the low end point of 95% confidence interval.
+     *
+     * @return the low end point
+     */
+    public double confidenceLo()
+    {	return mean - halfWidth(); }
+
+    /**
+     * Returns the high end point of 95% confidence interval.
+     *
+     * @return the high end point
+     */
+    public double confidenceHi()
+    {	return mean + halfWidth(); }
+
+    /**
+     * Test client, takes n, the precision and the time budget in milliseconds
+     * and prints an interim estimate every 100 trials.
+     */
+    public static void main(String[] args) {
+	int n = Integer.parseInt(args[0]);
+	double precision = Double.parseDouble(args[1]);
+	long millis = Long.parseLong(args[2]);
+	StreamingPercolationStats stats = new StreamingPercolationStats(n, precision, millis, s -> {
+	    if (s.trials() % 100 == 0)
+		StdOut.println(s.trials() + " trials: " + s.mean() + " +/- " + s.halfWidth());
+	    return true;
+	});
+
+	StdOut.println("trials                     = " + stats.trials());
+	StdOut.println("mean                       = " + stats.mean());
+	StdOut.println("stddev                     = " + stats.stddev());
+	StdOut.println("95% of confidence interval = [" + stats.confidenceLo() + ", " + stats.confidenceHi() + "]");
+    }
+}
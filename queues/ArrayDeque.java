@@ -0,0 +1,186 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * The {@code ArrayDeque} class is a double-ended queue with the same API as
+ * {@code Deque}, backed by a circular array instead of a linked list. The
+ * capacity is always a power of two, so the ends wrap around with a mask, and
+ * the array doubles when full and halves when one-quarter full, which makes
+ * every operation amortised constant time without allocating a node per item.
+ *
+ * @param <Item> the generic type of each item in the queue
+ * @author Karthikeyan
+ */
+public class ArrayDeque<Item> implements Iterable<Item> {
+    // initial capacity of the underlying array, a power of two
+    private static final int INIT_CAPACITY = 8;
+    private Item[] q;          // queue elements
+    private int head;          // index of the first item
+    private int n;             // number of elements on queue
+    private int modCount;      // number of changes, for the fail-fast iterator
+
+    /**
+     * Initialises an empty deque
+     */
+    public ArrayDeque() {
+	q = (Item[]) new Object[INIT_CAPACITY];
+	head = 0;
+	n = 0;
+    }
+
+    /**
+     * Returns true if the deque is empty
+     *
+     * @return true if deque empty else false
+     */
+    public boolean isEmpty()
+    {   return n == 0;     }
+
+    /**
+     * Returns the number of items in the deque
+     *
+     * @return {@code n}
+     */
+    public int size()
+    {   return n;   }
+
+    /**
+     * Adds the item in the first position
+     *
+     * @param item the item to add
+     * @throws IllegalArgumentException if item is null
+     */
+    public void addFirst(Item item) {
+	if (item == null) throw new IllegalArgumentException();
+	if (n == q.length) resize(2 * n);
+	head = (head - 1) & (q.length - 1);
+	q[head] = item;
+	n++;
+	modCount++;
+    }
+
+    /**
+     * Adds the item in the last position
+     *
+     * @param item the item to add
+     * @throws IllegalArgumentException if item is null
+     */
+    public void addLast(Item item) {
+	if (item == null) throw new IllegalArgumentException();
+	if (n == q.length) resize(2 * n);
+	q[(head + n) & (q.length - 1)] = item;
+	n++;
+	modCount++;
+    }
+
+    /**
+     * Removes and returns the first item in the deque
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the first item in the deque
+     */
+    public Item removeFirst() {
+	if (isEmpty()) throw new NoSuchElementException();
+	Item item = q[head];
+	q[head] = null;  // to avoid loitering
+	head = (head + 1) & (q.length - 1);
+	n--;
+	modCount++;
+	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	return item;
+    }
+
+    /**
+     * Removes and returns the last item in the deque
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the last item in the deque
+     */
+    public Item removeLast() {
+	if (isEmpty()) throw new NoSuchElementException();
+	int last = (head + n - 1) & (q.length - 1);
+	Item item = q[last];
+	q[last] = null;  // to avoid loitering
+	n--;
+	modCount++;
+	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	return item;
+    }
+
+    /**
+     * Resizes the underlying array, moving the items to the front
+     */
+    private void resize(int capacity) {
+	Item[] copy = (Item[]) new Object[capacity];
+	int tail = Math.min(n, q.length - head);  // items before the wrap around
+	System.arraycopy(q, head, copy, 0, tail);
+	System.arraycopy(q, 0, copy, tail, n - tail);
+	q = copy;
+	head = 0;
+    }
+
+    /**
+     * Returns an iterator that iterates over the deque in FIFO order. The
+     * iterator is fail-fast: it throws if the deque is changed while iterating.
+     *
+     * @return an iterator that iterates over the deque in FIFO order
+     */
+    public Iterator<Item> iterator()
+    {   return new ArrayDequeIterator(); }
+
+    // ArrayDequeIterator, that iterates the deque in FIFO order
+    private class ArrayDequeIterator implements Iterator<Item> {
+	int i = 0;
+	int expectedModCount = modCount;
+
+	public boolean hasNext()
+	{   return i < n;  }
+
+	public void remove()
+	{   throw new UnsupportedOperationException();  }
+
+	public Item next() {
+	    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+	    if (!hasNext()) throw new NoSuchElementException();
+	    return q[(head + i++) & (q.length - 1)];
+	}
+    }
+
+    /**
+     * Unit tests the code
+     */
+    public static void main(String[] args) {
+	ArrayDeque<Integer> q = new ArrayDeque<>();
+	StdOut.println("Test - 1 empty deque: " + q.isEmpty());
+	q.addFirst(2);
+	q.addLast(3);
+	q.addLast(4);
+	q.addFirst(1);
+	StdOut.println("Test - 2 deque size: " + q.size());
+	StdOut.println("Test - 3 removeFirst: " + q.removeFirst());
+	StdOut.println("Test - 4 removeLast: " + q.removeLast());
+	Iterator<Integer> iterator = q.iterator();
+	StdOut.println("Test - 5 hasNext: " + iterator.hasNext());
+	StdOut.println("Test - 6 next: " + iterator.next() + ", " + iterator.next());
+	StdOut.println("Test - 5A hasNext: " + iterator.hasNext());
+
+	// wrap around and resize in both directions against Deque
+	q = new ArrayDeque<>();
+	Deque<Integer> expected = new Deque<>();
+	boolean same = true;
+	for (int i = 0; i < 100000; i++) {
+	    int op = StdRandom.uniformInt(4);
+	    if (op == 0)      { q.addFirst(i); expected.addFirst(i); }
+	    else if (op == 1) { q.addLast(i);  expected.addLast(i);  }
+	    else if (q.isEmpty()) same &= expected.isEmpty();
+	    else if (op == 2) same &= q.removeFirst().equals(expected.removeFirst());
+	    else              same &= q.removeLast().equals(expected.removeLast());
+	}
+	Iterator<Integer> it = expected.iterator();
+	for (int item : q) same &= it.next() == item;
+	StdOut.println("Test - 7 same as Deque: " + (same && q.size() == expected.size()));
+    }
+}
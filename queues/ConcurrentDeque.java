@@ -0,0 +1,201 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * The {@code ConcurrentDeque} class is a lock-free work-stealing deque (Chase and
+ * Lev, "Dynamic Circular Work-Stealing Deque"). One thread, the owner, adds and
+ * removes items at the back with {@code addLast} and {@code removeLast} without
+ * locks; any other thread may steal items from the front with
+ * {@code removeFirst}, racing the owner and each other with a compare-and-swap
+ * on the front index.
+ *
+ * The owner-only methods must only ever be called by the same thread; this is
+ * not checked. Unlike {@code Deque} there is no {@code addFirst}, as the front
+ * only ever moves forward in this algorithm.
+ *
+ * @param <Item> the generic type of each item in the queue
+ * @author Karthikeyan
+ */
+public class ConcurrentDeque<Item> {
+    // initial capacity of the underlying array, a power of two
+    private static final int INIT_CAPACITY = 32;
+    private final AtomicLong top = new AtomicLong();  // index of the first item
+    private volatile long bottom;                      // index after the last item
+    private volatile Object[] q;                       // queue elements, circular
+
+    /**
+     * Initialises an empty deque
+     */
+    public ConcurrentDeque() {
+	q = new Object[INIT_CAPACITY];
+    }
+
+    /**
+     * Returns true if the deque is empty. Only a snapshot if other threads are
+     * using the deque.
+     *
+     * @return true if deque empty else false
+     */
+    public boolean isEmpty()
+    {   return size() == 0;     }
+
+    /**
+     * Returns the number of items in the deque. Only a snapshot if other threads
+     * are using the deque.
+     *
+     * @return the number of items in the deque
+     */
+    public int size() {
+	long b = bottom;
+	long t = top.get();
+	return (int) Math.max(0, b - t);
+    }
+
+    /**
+     * Adds the item in the last position. Owner thread only.
+     *
+     * @param item the item to add
+     * @throws IllegalArgumentException if item is null
+     */
+    public void addLast(Item item) {
+	if (item == null) throw new IllegalArgumentException();
+	long b = bottom;
+	long t = top.get();
+	Object[] a = q;
+	if (b - t >= a.length) a = resize(a, b, t);
+	a[(int) b & (a.length - 1)] = item;
+	bottom = b + 1;  // publishes the item to the thieves
+    }
+
+    /**
+     * Removes and returns the last item in the deque. Owner thread only.
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the last item in the deque
+     */
+    public Item removeLast() {
+	long b = bottom - 1;
+	Object[] a = q;
+	bottom = b;      // claims the last item before looking at the front
+	long t = top.get();
+	if (t > b) {     // empty
+	    bottom = b + 1;
+	    throw new NoSuchElementException();
+	}
+	int i = (int) b & (a.length - 1);
+	Item item = (Item) a[i];
+	if (t == b) {    // the last item, race the thieves for it
+	    bottom = b + 1;
+	    if (!top.compareAndSet(t, t + 1)) throw new NoSuchElementException();
+	}
+	else a[i] = null;  // to avoid loitering, no thief can reach it
+	return item;
+    }
+
+    /**
+     * Removes and returns the first item in the deque. Any thread.
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the first item in the deque
+     */
+    public Item removeFirst() {
+	while (true) {
+	    long t = top.get();
+	    long b = bottom;
+	    if (t >= b) throw new NoSuchElementException();
+	    Object[] a = q;
+	    Item item = (Item) a[(int) t & (a.length - 1)];
+	    if (top.compareAndSet(t, t + 1)) return item;
+	    // lost the race to another thief or the owner, retry
+	}
+    }
+
+    /**
+     * Copies the items from t to b into a new array of twice the capacity.
+     * Thieves still reading the old array find the same items at the same
+     * indices, so they are not disturbed.
+     */
+    private Object[] resize(Object[] a, long b, long t) {
+	Object[] copy = new Object[2 * a.length];
+	for (long i = t; i < b; i++)
+	    copy[(int) i & (copy.length - 1)] = a[(int) i & (a.length - 1)];
+	q = copy;
+	return copy;
+    }
+
+    /**
+     * Stress tests the deque with an owner and several thieves, checking that
+     * every item is removed exactly once, then compares its throughput with a
+     * {@code Deque} guarded by a lock.
+     */
+    public static void main(String[] args) throws InterruptedException {
+	int thieves = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+	int items = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+	ConcurrentDeque<Integer> q = new ConcurrentDeque<>();
+	AtomicLongArray taken = new AtomicLongArray(items);
+	long start = System.nanoTime();
+	run(thieves, items, taken, q::addLast, q::removeLast, q::removeFirst);
+	double lockFree = (System.nanoTime() - start) / 1e6;
+	boolean once = true;
+	for (int i = 0; i < items; i++) once &= taken.get(i) == 1;
+	StdOut.println("Test - 1 every item removed exactly once: " + once);
+
+	Deque<Integer> d = new Deque<>();
+	taken = new AtomicLongArray(items);
+	start = System.nanoTime();
+	run(thieves, items, taken,
+	    item -> { synchronized (d) { d.addLast(item); } },
+	    () -> { synchronized (d) { return d.removeLast(); } },
+	    () -> { synchronized (d) { return d.removeFirst(); } });
+	double locked = (System.nanoTime() - start) / 1e6;
+
+	StdOut.printf("%d thieves, %d items: lock-free %.1f ms, synchronized Deque %.1f ms%n",
+	              thieves, items, lockFree, locked);
+    }
+
+    // the owner adds all the items, taking one back every fourth item, and then
+    // drains the rest while the thieves steal until every item is taken
+    private static void run(int thieves, int items, AtomicLongArray taken,
+                            Consumer<Integer> addLast,
+                            Supplier<Integer> removeLast,
+                            Supplier<Integer> removeFirst)
+	throws InterruptedException {
+	AtomicLong count = new AtomicLong();
+	Thread[] threads = new Thread[thieves];
+	for (int i = 0; i < thieves; i++) {
+	    threads[i] = new Thread(() -> {
+		while (count.get() < items) {
+		    try {
+			taken.incrementAndGet(removeFirst.get());
+			count.incrementAndGet();
+		    }
+		    catch (NoSuchElementException e) { Thread.onSpinWait(); }
+		}
+	    });
+	    threads[i].start();
+	}
+	for (int i = 0; i < items; i++) {
+	    addLast.accept(i);
+	    if (i % 4 == 3) {
+		try {
+		    taken.incrementAndGet(removeLast.get());
+		    count.incrementAndGet();
+		}
+		catch (NoSuchElementException e) { }
+	    }
+	}
+	while (count.get() < items) {
+	    try {
+		taken.incrementAndGet(removeLast.get());
+		count.incrementAndGet();
+	    }
+	    catch (NoSuchElementException e) { Thread.onSpinWait(); }
+	}
+	for (Thread thread : threads) thread.join();
+    }
+}
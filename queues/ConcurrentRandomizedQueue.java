@@ -0,0 +1,192 @@
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * The {@code ConcurrentRandomizedQueue} class is a thread-safe randomized queue
+ * for many producer and consumer threads. The items are striped across shards,
+ * each a {@code RandomizedQueue} with its own lock and random generator, so
+ * threads working on different shards do not contend.
+ *
+ * An item is enqueued to a random shard, and dequeued from a shard chosen
+ * uniformly among the non-empty shards: random shards are drawn until one is
+ * non-empty, and after too many misses the non-empty shards are listed and one
+ * of them is drawn. The choice is uniform within the shard, so an item is removed with
+ * probability 1 / (s * m) where s is the number of non-empty shards and m is the
+ * size of its shard. As the shards are filled at random their sizes stay close
+ * to each other and the choice is approximately uniform over all the items; it
+ * is exactly uniform when all the non-empty shards have the same size. The more
+ * items there are per shard, the closer it gets.
+ *
+ * @param <Item> the generic type of each item in the queue
+ * @author Karthikeyan
+ */
+public class ConcurrentRandomizedQueue<Item> {
+    private final RandomizedQueue<Item>[] shards;  // each guarded by its own lock
+    private final LongAdder size = new LongAdder(); // number of items
+
+    /**
+     * Initialises an empty queue with two shards per available processor
+     */
+    public ConcurrentRandomizedQueue() {
+	this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initialises an empty queue with the given number of shards
+     *
+     * @param shards the number of shards
+     * @throws IllegalArgumentException if shards less than 1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentRandomizedQueue(int shards) {
+	if (shards <= 0) throw new IllegalArgumentException();
+	this.shards = (RandomizedQueue<Item>[]) new RandomizedQueue[shards];
+	SplittableRandom random = new SplittableRandom();
+	for (int i = 0; i < shards; i++)
+	    this.shards[i] = new RandomizedQueue<>(random.split());
+    }
+
+    /**
+     * Returns true if the queue is empty. Only a snapshot if other threads are
+     * using the queue.
+     *
+     * @return {@code true} if empty; otherwise {@code false}
+     */
+    public boolean isEmpty()
+    {   return size() == 0;     }
+
+    /**
+     * Returns the size of the queue. Only a snapshot if other threads are using
+     * the queue.
+     *
+     * @return the number of items in the queue
+     */
+    public int size()
+    {   return (int) Math.max(0, size.sum());   }
+
+    /**
+     * Adds the item to a random shard
+     *
+     * @param item the item added to the queue
+     * @throws IllegalArgumentException if the item is null
+     */
+    public void enqueue(Item item) {
+	if (item == null) throw new IllegalArgumentException();
+	RandomizedQueue<Item> shard = shards[ThreadLocalRandom.current().nextInt(shards.length)];
+	size.increment();  // before the item can be dequeued
+	synchronized (shard) { shard.enqueue(item); }
+    }
+
+    /**
+     * Removes and returns a random item of a random non-empty shard
+     *
+     * @throws NoSuchElementException if every shard is empty
+     * @return the removed random item
+     */
+    public Item dequeue()
+    {   return take(true);   }
+
+    /**
+     * Returns a random item of a random non-empty shard
+     *
+     * @throws NoSuchElementException if every shard is empty
+     * @return a random item in the queue
+     */
+    public Item sample()
+    {   return take(false);   }
+
+    // removes or returns a random item of a shard chosen uniformly among the
+    // non-empty shards
+    private Item take(boolean remove) {
+	ThreadLocalRandom random = ThreadLocalRandom.current();
+	int[] nonEmpty = null;
+	while (true) {
+	    for (int attempt = 0; attempt < 2 * shards.length; attempt++) {
+		RandomizedQueue<Item> shard = shards[random.nextInt(shards.length)];
+		synchronized (shard) {
+		    if (!shard.isEmpty()) return take(shard, remove);
+		}
+	    }
+
+	    // mostly empty, draws among the shards found non-empty instead
+	    if (nonEmpty == null) nonEmpty = new int[shards.length];
+	    int m = 0;
+	    for (int i = 0; i < shards.length; i++) {
+		synchronized (shards[i]) {
+		    if (!shards[i].isEmpty()) nonEmpty[m++] = i;
+		}
+	    }
+	    if (m == 0) throw new NoSuchElementException();
+	    RandomizedQueue<Item> shard = shards[nonEmpty[random.nextInt(m)]];
+	    synchronized (shard) {
+		if (!shard.isEmpty()) return take(shard, remove);
+	    }
+	    // emptied by another thread meanwhile, draws again
+	}
+    }
+
+    // removes or returns a random item of the shard, whose lock is held
+    private Item take(RandomizedQueue<Item> shard, boolean remove) {
+	if (!remove) return shard.sample();
+	Item item = shard.dequeue();
+	size.decrement();
+	return item;
+    }
+
+    /**
+     * Checks that the non-empty shards are chosen uniformly, then measures the
+     * throughput of a mixed enqueue/dequeue workload from 1 to 64 threads,
+     * against a {@code RandomizedQueue} behind a single lock.
+     */
+    public static void main(String[] args) throws InterruptedException {
+	int ops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+	// one item in each of two shards with empty shards between them
+	ConcurrentRandomizedQueue<Integer> q = new ConcurrentRandomizedQueue<>(4);
+	q.shards[0].enqueue(0);
+	q.shards[3].enqueue(3);
+	q.size.add(2);
+	int zeros = 0, trials = 100000;
+	for (int i = 0; i < trials; i++) if (q.sample() == 0) zeros++;
+	StdOut.printf("Test - 1 first of two non-empty shards (expect 0.5): %.3f%n", zeros * 1.0 / trials);
+	StdOut.println("Test - 2 dequeue both: " + (q.dequeue() + q.dequeue()) + ", empty: " + q.isEmpty());
+	StdOut.println("threads  sharded ops/ms  global lock ops/ms");
+	for (int threads = 1; threads <= 64; threads *= 2) {
+	    ConcurrentRandomizedQueue<Integer> sharded = new ConcurrentRandomizedQueue<>();
+	    RandomizedQueue<Integer> global = new RandomizedQueue<>();
+	    double a = throughput(threads, ops, sharded::enqueue, () -> {
+		try { sharded.dequeue(); } catch (NoSuchElementException e) { }
+	    });
+	    double b = throughput(threads, ops, item -> {
+		synchronized (global) { global.enqueue(item); }
+	    }, () -> {
+		synchronized (global) { if (!global.isEmpty()) global.dequeue(); }
+	    });
+	    StdOut.printf("%7d  %14.0f  %18.0f%n", threads, a, b);
+	}
+    }
+
+    // returns the operations per millisecond of the threads sharing ops operations,
+    // each enqueueing two items for every one it dequeues
+    private static double throughput(int threads, int ops, IntConsumer enqueue,
+                                     Runnable dequeue) throws InterruptedException {
+	Thread[] workers = new Thread[threads];
+	int perThread = ops / threads;
+	for (int t = 0; t < threads; t++) {
+	    workers[t] = new Thread(() -> {
+		for (int i = 0; i < perThread; i++) {
+		    if (i % 3 == 2) dequeue.run();
+		    else            enqueue.accept(i);
+		}
+	    });
+	}
+	long start = System.nanoTime();
+	for (Thread worker : workers) worker.start();
+	for (Thread worker : workers) worker.join();
+	return perThread * threads / ((System.nanoTime() - start) / 1e6);
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import edu.princeton.cs.algs4.StdOut;
@@ -22,6 +23,7 @@ public class Deque<Item> implements Iterable<Item> {
 	
     private Node first, last;  // beginning and end of queue
     private int n;             // number of elements on queue
+    private int modCount;      // number of changes, for the fail-fast iterator
 	
     /**
      * Initialises an empty deque
@@ -64,6 +66,7 @@ public class Deque<Item> implements Iterable<Item> {
 	    oldFirst.prev = first; 
 	} 
 	n++; 
+	modCount++;
     } 
 	
     /** 
@@ -84,6 +87,7 @@ public class Deque<Item> implements Iterable<Item> {
 	    last.prev = oldLast;  
 	} 
 	n++;
+	modCount++;
     } 
 	
     /** 
@@ -95,6 +99,7 @@ public class Deque<Item> implements Iterable<Item> {
     public Item removeFirst() {
 	if (isEmpty()) throw new NoSuchElementException(); 
 	n--; 
+	modCount++;
 	Node oldFirst = first; 
 	first = first.next; 
 	if (isEmpty()) first = last = null; 
@@ -111,6 +116,7 @@ public class Deque<Item> implements Iterable<Item> {
     public Item removeLast() {
 	if (isEmpty()) throw new NoSuchElementException(); 
 	n--; 
+	modCount++;
 	Node oldLast = last; 
 	last = last.prev; 
 	if (isEmpty())  first = last = null; 
@@ -119,7 +125,8 @@ public class Deque<Item> implements Iterable<Item> {
     } 
 	
     /** 
-     * Returns an iterator that iterates over the deque in FIFO order 
+     * Returns an iterator that iterates over the deque in FIFO order. The 
+     * iterator is fail-fast: it throws if the deque is changed while iterating.
      *
      * @return an iterator that iterates over the deque in FIFO order
      */
@@ -129,6 +136,7 @@ public class Deque<Item> implements Iterable<Item> {
     // DequeIterator, that iterates the deque in FIFO order
     private class DequeIterator implements Iterator<Item> {
 	Node i = first; 
+	int expectedModCount = modCount;
 		
 	public boolean hasNext() 
 	{   return i != null;  } 
@@ -137,6 +145,7 @@ public class Deque<Item> implements Iterable<Item> {
 	{   throw new UnsupportedOperationException();  } 
 		
 	public Item next() {
+	    if (modCount != expectedModCount) throw new ConcurrentModificationException();
 	    if (!hasNext()) throw new NoSuchElementException(); 
 	    Item item = i.item; 
 	    i = i.next; 
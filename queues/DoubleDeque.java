@@ -0,0 +1,171 @@
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * The {@code DoubleDeque} class is a double-ended queue of {@code double} values with
+ * the same add/remove first/last semantics as {@code Deque}, stored unboxed in
+ * a circular array like {@code ArrayDeque}.
+ *
+ * Generated from {@code IntDeque} by {@code primitive-deques.sh}, do not edit.
+ *
+ * @author Karthikeyan
+ */
+public class DoubleDeque implements Iterable<Double> {
+    // initial capacity of the underlying array, a power of two
+    private static final int INIT_CAPACITY = 8;
+    private double[] q;           // queue elements
+    private int head;          // index of the first item
+    private int n;             // number of elements on queue
+    private int modCount;      // number of changes, for the fail-fast iterator
+
+    /**
+     * Initialises an empty deque
+     */
+    public DoubleDeque() {
+	q = new double[INIT_CAPACITY];
+	head = 0;
+	n = 0;
+    }
+
+    /**
+     * Returns true if the deque is empty
+     *
+     * @return true if deque empty else false
+     */
+    public boolean isEmpty()
+    {   return n == 0;     }
+
+    /**
+     * Returns the number of items in the deque
+     *
+     * @return {@code n}
+     */
+    public int size()
+    {   return n;   }
+
+    /**
+     * Adds the item in the first position
+     *
+     * @param item the item to add
+     */
+    public void addFirst(double item) {
+	if (n == q.length) resize(2 * n);
+	head = (head - 1) & (q.length - 1);
+	q[head] = item;
+	n++;
+	modCount++;
+    }
+
+    /**
+     * Adds the item in the last position
+     *
+     * @param item the item to add
+     */
+    public void addLast(double item) {
+	if (n == q.length) resize(2 * n);
+	q[(head + n) & (q.length - 1)] = item;
+	n++;
+	modCount++;
+    }
+
+    /**
+     * Removes and returns the first item in the deque
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the first item in the deque
+     */
+    public double removeFirst() {
+	if (isEmpty()) throw new NoSuchElementException();
+	double item = q[head];
+	head = (head + 1) & (q.length - 1);
+	n--;
+	modCount++;
+	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	return item;
+    }
+
+    /**
+     * Removes and returns the last item in the deque
+     *
+     * @throws NoSuchElementException if deque is empty
+     * @return the last item in the deque
+     */
+    public double removeLast() {
+	if (isEmpty()) throw new NoSuchElementException();
+	double item = q[(head + n - 1) & (q.length - 1)];
+	n--;
+	modCount++;
+	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	return item;
+    }
+
+    /**
+     * Resizes the underlying array, moving the items to the front
+     */
+    private void resize(int capacity) {
+	double[] copy = new double[capacity];
+	int tail = Math.min(n, q.length - head);  // items before the wrap around
+	System.arraycopy(q, head, copy, 0, tail);
+	System.arraycopy(q, 0, copy, tail, n - tail);
+	q = copy;
+	head = 0;
+    }
+
+    /**
+     * Returns an iterator that iterates over the deque in FIFO order without
+     * boxing the items. The iterator is fail-fast: it throws if the deque is
+     * changed while iterating.
+     *
+     * @return an iterator that iterates over the deque in FIFO order
+     */
+    public PrimitiveIterator.OfDouble iterator()
+    {   return new DoubleDequeIterator(); }
+
+    // DoubleDequeIterator, that iterates the deque in FIFO order
+    private class DoubleDequeIterator implements PrimitiveIterator.OfDouble {
+	int i = 0;
+	int expectedModCount = modCount;
+
+	public boolean hasNext()
+	{   return i < n;  }
+
+	public void remove()
+	{   throw new UnsupportedOperationException();  }
+
+	public double nextDouble() {
+	    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+	    if (!hasNext()) throw new NoSuchElementException();
+	    return q[(head + i++) & (q.length - 1)];
+	}
+    }
+
+    /**
+     * Unit tests the code
+     */
+    public static void main(String[] args) {
+	DoubleDeque q = new DoubleDeque();
+	StdOut.println("Test - 1 empty deque: " + q.isEmpty());
+	q.addFirst(2);
+	q.addLast(3);
+	q.addLast(4);
+	q.addFirst(1);
+	StdOut.println("Test - 2 deque size: " + q.size());
+	StdOut.println("Test - 3 removeFirst: " + q.removeFirst());
+	StdOut.println("Test - 4 removeLast: " + q.removeLast());
+	PrimitiveIterator.OfDouble iterator = q.iterator();
+	StdOut.println("Test - 5 hasNext: " + iterator.hasNext());
+	StdOut.println("Test - 6 next: " + iterator.nextDouble() + ", " + iterator.nextDouble());
+	StdOut.println("Test - 5A hasNext: " + iterator.hasNext());
+	iterator = q.iterator();
+	q.addLast(5);
+	try {
+	    iterator.nextDouble();
+	    StdOut.println("Test - 7 fail-fast iterator: false");
+	}
+	catch (ConcurrentModificationException e) {
+	    StdOut.println("Test - 7 fail-fast iterator: true");
+	}
+    }
+}
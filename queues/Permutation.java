@@ -1,18 +1,43 @@
-import edu.princeton.cs.algs4.StdIn;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
 import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
-/** 
- * Client program {@code Permutation} that takes n strings and 
- * prints exactly {@code k} of them. 
+/**
+ * Client program {@code Permutation} that takes n strings and
+ * prints exactly {@code k} of them.
+ *
+ * The strings are sampled with a reservoir (Algorithm R): the queue never holds
+ * more than {@code k} of them, and the i-th string replaces a random one with
+ * probability k / i, so every k-subset is equally likely while the memory is
+ * O(k) instead of O(n). The standard input is read through a buffered reader
+ * one line at a time instead of token by token, decoded as UTF-8 and split on
+ * whitespace like {@code StdIn.readString}.
  *
- * @author Karthikeyan 
+ * @author Karthikeyan
  */
 public class Permutation {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 	RandomizedQueue<String> q = new RandomizedQueue<>();
-	int k = Integer.parseInt(args[0]); 
-		
-	while (!StdIn.isEmpty()) q.enqueue(StdIn.readString()); 
+	int k = Integer.parseInt(args[0]);
+	BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+	                                     1 << 16);
+	long count = 0;  // no. of strings read
+
+	for (String line = in.readLine(); line != null; line = in.readLine()) {
+	    for (String s : line.split("\\p{javaWhitespace}+")) {
+		if (s.isEmpty()) continue;
+		count++;
+		if (q.size() < k) q.enqueue(s);
+		else if (k > 0 && StdRandom.uniformLong(count) < k) {
+		    q.dequeue();
+		    q.enqueue(s);
+		}
+	    }
+	}
 	while (k-- > 0) StdOut.println(q.dequeue());
-    }		
+    }
 }
@@ -1,5 +1,12 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
@@ -16,18 +23,119 @@ import edu.princeton.cs.algs4.StdRandom;
  * @author Karthikeyan
  */
 public class RandomizedQueue<Item> implements Iterable<Item> {
-    // initial capacity of the underlying array
-    private static final int INIT_CAPACITY = 8; 
     private Item[] q;  // queue elements
     private int n;     // number of items and the end of the queue
+    private int modCount;  // number of changes, for the fail-fast iterator
+    private RandomGenerator random;  // source of randomness, null for StdRandom
+    private CapacityPolicy policy;   // how the array grows and shrinks
+    private int resizes;             // no. of times the array was resized
+    private long copied;             // no. of items copied by the resizes
+
+    /**
+     * The {@code CapacityPolicy} class describes how the underlying array of a 
+     * {@code RandomizedQueue} is sized: its initial capacity, the factor it grows 
+     * by when full, the capacity it never shrinks below, and whether it shrinks 
+     * at all. When shrinking is on, the array shrinks by the growth factor once 
+     * it is only 1 / factor^2 full, which leaves a gap of a factor between the 
+     * shrink and the next grow so that bursty workloads do not thrash.
+     */
+    public static final class CapacityPolicy {
+	/** Starts at 8, doubles when full and halves when one - quarter full. */
+	public static final CapacityPolicy DEFAULT = new CapacityPolicy(8, 2.0, 1, true);
+
+	private final int initialCapacity;  // capacity of a new queue
+	private final double growthFactor;  // factor to grow and shrink by
+	private final int minCapacity;      // capacity never shrunk below
+	private final boolean shrink;       // false to never shrink
+
+	/**
+	 * Creates a capacity policy 
+	 *
+	 * @param initialCapacity capacity of a new queue, a hint of its expected size
+	 * @param growthFactor factor the capacity grows and shrinks by
+	 * @param minCapacity capacity the array is never shrunk below
+	 * @param shrink {@code false} to never shrink the array
+	 * @throws IllegalArgumentException if a capacity is less than 1, the initial 
+	 * capacity is less than the minimum, or the growth factor is not more than 1
+	 */
+	public CapacityPolicy(int initialCapacity, double growthFactor, int minCapacity, 
+	                      boolean shrink) {
+	    if (minCapacity < 1 || initialCapacity < minCapacity || !(growthFactor > 1) 
+	        || Double.isInfinite(growthFactor)) 
+		throw new IllegalArgumentException(); 
+	    this.initialCapacity = initialCapacity; 
+	    this.growthFactor = growthFactor; 
+	    this.minCapacity = minCapacity; 
+	    this.shrink = shrink; 
+	}
+
+	// returns the capacity to grow a full array of the given capacity to
+	int grow(int capacity) {
+	    long grown = Math.max(capacity + 1L, (long) (capacity * growthFactor)); 
+	    if (capacity == Integer.MAX_VALUE - 8) throw new OutOfMemoryError(); 
+	    return (int) Math.min(grown, Integer.MAX_VALUE - 8); 
+	}
+
+	// returns the capacity to shrink an array of the given capacity holding n 
+	// items to, or the same capacity if it should not shrink
+	int shrink(int capacity, int n) {
+	    if (!shrink) return capacity; 
+	    while (n > 0 && n <= capacity / (growthFactor * growthFactor) 
+	           && (int) (capacity / growthFactor) >= minCapacity) 
+		capacity = (int) (capacity / growthFactor); 
+	    return capacity; 
+	}
+    }
 	
     /**
-     * Initialises the queue with the initial capacity
+     * Initialises the queue with the default capacity policy, drawing random 
+     * numbers from {@code StdRandom}
      */
     public RandomizedQueue() {
-	q = (Item[]) new Object[INIT_CAPACITY]; 
+	this(CapacityPolicy.DEFAULT); 
+    } 
+
+    /**
+     * Initialises the queue with the given capacity policy, drawing random 
+     * numbers from {@code StdRandom}
+     *
+     * @param policy the capacity policy
+     * @throws IllegalArgumentException if policy is null
+     */
+    public RandomizedQueue(CapacityPolicy policy) {
+	if (policy == null) throw new IllegalArgumentException(); 
+	this.policy = policy; 
+	q = (Item[]) new Object[policy.initialCapacity]; 
 	n = 0; 
     } 
+
+    /**
+     * Initialises the queue with the given capacity policy and random generator, 
+     * see {@link #RandomizedQueue(RandomGenerator)}
+     *
+     * @param policy the capacity policy
+     * @param random the random generator, used by this queue only
+     * @throws IllegalArgumentException if policy or random is null
+     */
+    public RandomizedQueue(CapacityPolicy policy, RandomGenerator random) {
+	this(policy); 
+	if (random == null) throw new IllegalArgumentException(); 
+	this.random = random; 
+    } 
+
+    /**
+     * Initialises the queue with the initial capacity, drawing random numbers 
+     * from the given generator instead of the shared {@code StdRandom}. Giving 
+     * every queue (or thread) its own fast generator, for example a 
+     * {@code SplittableRandom} or {@code RandomGenerator.of("L64X128MixRandom")}, 
+     * avoids contention and makes a queue reproducible from its seed. 
+     *
+     * @param random the random generator, used by this queue only
+     * @throws IllegalArgumentException if random is null
+     */
+    public RandomizedQueue(RandomGenerator random) {
+	this(CapacityPolicy.DEFAULT, random); 
+    } 
 	
     /**
      * Returns true if the queue is empty
@@ -44,6 +152,23 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
      */
     public int size() 
     {   return n;   }
+
+    /**
+     * Returns the number of times the underlying array was resized
+     *
+     * @return {@code resizes} 
+     */
+    public int resizeCount() 
+    {   return resizes;   }
+
+    /**
+     * Returns the number of items copied from one array to another by the resizes; 
+     * multiply by the size of a reference for the bytes copied
+     *
+     * @return {@code copied} 
+     */
+    public long copiedCount() 
+    {   return copied;    }
 	
     /**
      * Adds the item to the queue and resizes the array if it is full 
@@ -53,24 +178,26 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
      */
     public void enqueue(Item item) {
 	if (item == null) throw new IllegalArgumentException();
-	if (n == q.length) resize(2*n); 
+	if (n == q.length) resize(policy.grow(n)); 
 	q[n++] = item; 
+	modCount++;
     } 
 	
     /**
-     * Removes and returns a random item and resizes the array if 
-     * it is one - quarter full
+     * Removes and returns a random item and shrinks the array if 
+     * the capacity policy says so
      *
      * @throws NoSuchElementException if queue is empty
      * @return the removed random item
      */
     public Item dequeue() {
 	if (isEmpty()) throw new NoSuchElementException(); 
-	int i = StdRandom.uniformInt(n);
+	int i = uniform(n);
 	Item item = q[i]; 
 	q[i] = q[--n];
 	q[n] = null;  // to avoid loitering
-	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	modCount++;
+	shrinkIfSparse();
 	return item; 
     } 
 	
@@ -82,30 +209,139 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
      */
     public Item sample() {
 	if (isEmpty()) throw new NoSuchElementException(); 
-	return q[StdRandom.uniformInt(n)]; 
+	return q[uniform(n)]; 
     } 
+
+    /**
+     * Removes and returns k random items with a single partial Fisher-Yates 
+     * pass, resizing the array at most once
+     *
+     * @param k the number of items to remove
+     * @throws IllegalArgumentException if k is negative
+     * @throws NoSuchElementException if the queue has less than k items
+     * @return the removed items, in random order
+     */
+    public List<Item> dequeue(int k) {
+	if (k < 0) throw new IllegalArgumentException(); 
+	if (k > n) throw new NoSuchElementException(); 
+	shuffleTail(k); 
+	List<Item> items = new ArrayList<>(k); 
+	for (int i = n - k; i < n; i++) {
+	    items.add(q[i]); 
+	    q[i] = null;  // to avoid loitering
+	}
+	n -= k; 
+	modCount++;
+	shrinkIfSparse(); 
+	return items; 
+    }
+
+    /**
+     * Returns k random items of the queue without removing them
+     *
+     * @param k the number of items to sample
+     * @param replacement {@code true} to sample with replacement, so an item can 
+     * be returned more than once; {@code false} for k distinct items
+     * @throws IllegalArgumentException if k is negative
+     * @throws NoSuchElementException if k is positive and the queue is empty, or 
+     * the queue has less than k items when sampling without replacement, like 
+     * {@code dequeue(k)}
+     * @return the sampled items, in random order
+     */
+    public List<Item> sample(int k, boolean replacement) {
+	if (k < 0) throw new IllegalArgumentException(); 
+	if ((k > 0 && isEmpty()) || (!replacement && k > n)) throw new NoSuchElementException(); 
+	List<Item> items = new ArrayList<>(k); 
+	if (replacement) {
+	    for (int i = 0; i < k; i++) items.add(q[uniform(n)]); 
+	}
+	else {
+	    shuffleTail(k);  // reorders the items, which does not change the queue
+	    for (int i = n - k; i < n; i++) items.add(q[i]); 
+	}
+	return items; 
+    }
+
+    /**
+     * Removes all the items and adds them to the collection in random order
+     *
+     * @param c the collection to add the items to
+     * @throws IllegalArgumentException if c is null
+     * @return the number of items added
+     */
+    public int drainTo(Collection<? super Item> c) {
+	if (c == null) throw new IllegalArgumentException(); 
+	int k = n; 
+	c.addAll(dequeue(k)); 
+	return k; 
+    }
+
+    /**
+     * Returns a random int in [0, bound) 
+     */
+    private int uniform(int bound) 
+    {	return random == null ? StdRandom.uniformInt(bound) : random.nextInt(bound);	}
+
+    /**
+     * Moves k random items to the end of the queue, in random order 
+     */
+    private void shuffleTail(int k) {
+	for (int j = n - 1; j >= n - k; j--) {
+	    int i = uniform(j + 1); 
+	    Item item = q[i]; 
+	    q[i] = q[j]; 
+	    q[j] = item; 
+	}
+    }
 	
     /** 
-     * Returns an iterator that iterates over the item in random order 
+     * Returns an iterator that iterates over the item in random order. The 
+     * iterator works on a copy of the items and is fail-fast: it throws if the 
+     * queue is changed while iterating.
      *
      * @return an iterator that iterates over the item in random order
      */
     public Iterator<Item> iterator()
     {	return new RQIterator();   } 
+
+    /** 
+     * Returns a weakly consistent iterator that iterates over the item in random 
+     * order without copying them. The random order of the indices is generated 
+     * lazily, so creating the iterator is O(1) and it takes memory only for the 
+     * items already returned. It never throws because of changes to the queue: 
+     * items added after its creation are not returned, and items moved by a 
+     * dequeue, or reordered by {@code sample(k, false)}, may be returned twice 
+     * or missed.
+     *
+     * @return a weakly consistent iterator over the items in random order
+     */
+    public Iterator<Item> lazyIterator()
+    {	return new LazyRQIterator();   } 
 	
     /**
      * Resizes the underlying array 
      */
     private void resize(int capacity) {
 	Item[] copy = (Item[]) new Object[capacity]; 
-	for (int i = 0; i < n; i++) copy[i] = q[i]; 
+	System.arraycopy(q, 0, copy, 0, n); 
 	q = copy; 
+	resizes++; 
+	copied += n; 
+    }
+
+    /**
+     * Shrinks the underlying array, at most once, if the capacity policy says so 
+     */
+    private void shrinkIfSparse() {
+	int capacity = policy.shrink(q.length, n); 
+	if (capacity != q.length) resize(capacity); 
     }
 	
     // the queue iterator, for iterating over the queue in random order
     private class RQIterator implements Iterator<Item> {
 	private Item[] q1; 
 	private int i; 
+	private int expectedModCount = modCount;
 		
 	public RQIterator() {
 	    q1 = (Item[]) new Object[n]; 
@@ -119,14 +355,51 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 	{ throw new UnsupportedOperationException(); }
 		
 	public Item next() {
+	    if (modCount != expectedModCount) throw new ConcurrentModificationException();
 	    if (!hasNext()) throw new NoSuchElementException(); 
-	    int k = StdRandom.uniformInt(i); 
+	    int k = uniform(i); 
 	    Item item = q1[k]; 
 	    q1[k] = q1[--i]; 
 	    q1[i] = null; 
 	    return item; 
 	}
     }		
+
+    // the weakly consistent iterator, a Fisher-Yates shuffle of the indices that 
+    // only records the positions it has swapped
+    private class LazyRQIterator implements Iterator<Item> {
+	private HashMap<Integer, Integer> swapped = new HashMap<>(); 
+	private int i = n;   // no. of indices not drawn yet
+	private Item next;   // the next item, null if none
+		
+	public LazyRQIterator() 
+	{   advance();        }
+
+	// draws indices until one still holds an item
+	private void advance() {
+	    next = null; 
+	    while (next == null && i > 0) {
+		int k = uniform(i--); 
+		int index = swapped.getOrDefault(k, k); 
+		swapped.put(k, swapped.getOrDefault(i, i)); 
+		swapped.remove(i); 
+		if (index < n) next = q[index]; 
+	    }
+	}
+		 
+	public boolean hasNext() 
+	{   return next != null;      }
+		
+	public void remove() 
+	{ throw new UnsupportedOperationException(); }
+		
+	public Item next() {
+	    if (!hasNext()) throw new NoSuchElementException(); 
+	    Item item = next; 
+	    advance(); 
+	    return item; 
+	}
+    }		
 	
     /**
      * Unit tests the code 
@@ -143,5 +416,55 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 	Iterator<Integer> iterator = q.iterator(); 
 	StdOut.println("Test - 5A iterator hasNext: " + iterator.hasNext()); 
 	StdOut.println("Test - 5B iterator next: " + iterator.next() + ", " + iterator.next()); 
+	iterator = q.iterator(); 
+	q.enqueue(4); 
+	try { 
+	    iterator.next(); 
+	    StdOut.println("Test - 6 fail-fast: false"); 
+	} 
+	catch (ConcurrentModificationException e) { 
+	    StdOut.println("Test - 6 fail-fast: true"); 
+	} 
+	StdOut.print("Test - 7 lazy iterator:"); 
+	for (Iterator<Integer> it = q.lazyIterator(); it.hasNext(); ) StdOut.print(" " + it.next()); 
+	StdOut.println(); 
+	StdOut.println("Test - 8 sample(2, false): " + q.sample(2, false)); 
+	StdOut.println("Test - 9 sample(5, true): " + q.sample(5, true)); 
+	StdOut.println("Test - 10 dequeue(2): " + q.dequeue(2) + ", size: " + q.size()); 
+	List<Integer> drained = new ArrayList<>(); 
+	StdOut.println("Test - 11 drainTo: " + q.drainTo(drained) + " " + drained + ", empty: " + q.isEmpty()); 
+	try { 
+	    q.sample(1, false); 
+	    StdOut.println("Test - 11A sample(1, false) of empty queue throws: false"); 
+	} 
+	catch (NoSuchElementException e) { 
+	    StdOut.println("Test - 11A sample(1, false) of empty queue throws: true"); 
+	} 
+	RandomizedQueue<Integer> bursty = new RandomizedQueue<>(new CapacityPolicy(1024, 1.5, 1024, false)); 
+	for (int round = 0; round < 100; round++) {
+	    for (int i = 0; i < 2000; i++) bursty.enqueue(i); 
+	    while (!bursty.isEmpty()) bursty.dequeue(); 
+	}
+	StdOut.println("Test - 12 no-shrink policy resizes: " + bursty.resizeCount() 
+	               + ", items copied: " + bursty.copiedCount()); 
+	if (args.length > 0) benchmark(Integer.parseInt(args[0])); 
     }	
+
+    // compares the enqueue/dequeue throughput with StdRandom and with an injected 
+    // SplittableRandom
+    private static void benchmark(int items) {
+	for (int round = 0; round < 3; round++) {
+	    StdOut.printf("round %d: StdRandom %.1f ms, SplittableRandom %.1f ms%n", round, 
+	                  time(new RandomizedQueue<>(), items), 
+	                  time(new RandomizedQueue<>(new SplittableRandom(round)), items)); 
+	}
+    }
+
+    // returns the milliseconds taken to enqueue and then dequeue the items
+    private static double time(RandomizedQueue<Integer> q, int items) {
+	long start = System.nanoTime(); 
+	for (int i = 0; i < items; i++) q.enqueue(i); 
+	while (!q.isEmpty()) q.dequeue(); 
+	return (System.nanoTime() - start) / 1e6; 
+    }
 }
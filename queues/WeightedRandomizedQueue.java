@@ -0,0 +1,175 @@
+import java.util.NoSuchElementException;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * The {@code WeightedRandomizedQueue} class is a randomized queue where every
+ * item has a positive weight, and the item removed or sampled is chosen at
+ * random with probability proportional to its weight.
+ *
+ * The items are kept in an array like {@code RandomizedQueue}, and the weights
+ * in a Fenwick tree (binary indexed tree) over the same positions, so a weighted
+ * choice is a descent of the tree. Enqueue, sample and dequeue take O(log n),
+ * plus the amortised cost of resizing.
+ *
+ * @param <Item> the generic type of each item in the queue
+ * @author Karthikeyan
+ */
+public class WeightedRandomizedQueue<Item> {
+    // initial capacity of the underlying arrays, a power of two
+    private static final int INIT_CAPACITY = 8;
+    private Item[] q;          // queue elements
+    private double[] weights;  // weight of each element
+    private double[] tree;     // Fenwick tree of the weights, 1-based
+    private int n;             // number of items and the end of the queue
+
+    /**
+     * Initialises the queue with the initial capacity
+     */
+    public WeightedRandomizedQueue() {
+	q = (Item[]) new Object[INIT_CAPACITY];
+	weights = new double[INIT_CAPACITY];
+	tree = new double[INIT_CAPACITY + 1];
+	n = 0;
+    }
+
+    /**
+     * Returns true if the queue is empty
+     *
+     * @return {@code true} if empty; otherwise {@code false}
+     */
+    public boolean isEmpty()
+    {   return n == 0;     }
+
+    /**
+     * Returns the size of the queue
+     *
+     * @return {@code n}
+     */
+    public int size()
+    {   return n;   }
+
+    /**
+     * Returns the sum of the weights of the items in the queue
+     *
+     * @return the total weight
+     */
+    public double totalWeight()
+    {   return prefix(n);  }
+
+    /**
+     * Adds the item with the given weight and resizes the arrays if they are full
+     *
+     * @param item the item added to the queue
+     * @param weight the weight of the item
+     * @throws IllegalArgumentException if the item is null or the weight is not
+     * positive and finite
+     */
+    public void enqueue(Item item, double weight) {
+	if (item == null || !(weight > 0) || Double.isInfinite(weight))
+	    throw new IllegalArgumentException();
+	if (n == q.length) resize(2 * n);
+	q[n] = item;
+	weights[n] = weight;
+	add(n++, weight);
+    }
+
+    /**
+     * Removes and returns a random item, chosen with probability proportional to
+     * its weight, and resizes the arrays if they are one - quarter full
+     *
+     * @throws NoSuchElementException if queue is empty
+     * @return the removed random item
+     */
+    public Item dequeue() {
+	if (isEmpty()) throw new NoSuchElementException();
+	int i = choose();
+	Item item = q[i];
+	int last = --n;
+	add(i, weights[last] - weights[i]);  // moves the last item into position i
+	add(last, -weights[last]);
+	q[i] = q[last];
+	weights[i] = weights[last];
+	q[last] = null;  // to avoid loitering
+	weights[last] = 0;
+	if (n > 0 && n == q.length / 4) resize(q.length / 2);
+	return item;
+    }
+
+    /**
+     * Returns a random item, chosen with probability proportional to its weight
+     *
+     * @throws NoSuchElementException if queue is empty
+     * @return a random item in the queue
+     */
+    public Item sample() {
+	if (isEmpty()) throw new NoSuchElementException();
+	return q[choose()];
+    }
+
+    // returns the position of a random item, chosen by weight
+    private int choose() {
+	double r = StdRandom.uniformDouble() * prefix(n);
+	int i = 0;
+	for (int step = Integer.highestOneBit(q.length); step > 0; step >>= 1) {
+	    if (i + step <= q.length && tree[i + step] <= r) {
+		i += step;
+		r -= tree[i];
+	    }
+	}
+	return Math.min(i, n - 1);  // in case of rounding errors at the end
+    }
+
+    // adds delta to the weight at position i of the Fenwick tree
+    private void add(int i, double delta) {
+	for (int j = i + 1; j < tree.length; j += j & -j) tree[j] += delta;
+    }
+
+    // returns the sum of the weights at the positions before i
+    private double prefix(int i) {
+	double sum = 0;
+	for (int j = i; j > 0; j -= j & -j) sum += tree[j];
+	return sum;
+    }
+
+    /**
+     * Resizes the underlying arrays and rebuilds the Fenwick tree in linear time,
+     * which also clears any rounding error it has accumulated
+     */
+    private void resize(int capacity) {
+	Item[] copy = (Item[]) new Object[capacity];
+	double[] w = new double[capacity];
+	System.arraycopy(q, 0, copy, 0, n);
+	System.arraycopy(weights, 0, w, 0, n);
+	q = copy;
+	weights = w;
+	tree = new double[capacity + 1];
+	for (int j = 1; j <= n; j++) {
+	    tree[j] += weights[j - 1];
+	    int parent = j + (j & -j);
+	    if (parent <= capacity) tree[parent] += tree[j];
+	}
+    }
+
+    /**
+     * Unit tests the code
+     */
+    public static void main(String[] args) {
+	WeightedRandomizedQueue<String> q = new WeightedRandomizedQueue<>();
+	StdOut.println("Test - 1 empty queue: " + q.isEmpty());
+	q.enqueue("a", 1);
+	q.enqueue("b", 2);
+	q.enqueue("c", 7);
+	StdOut.println("Test - 2 size: " + q.size() + ", total weight: " + q.totalWeight());
+
+	int[] counts = new int[3];
+	int trials = 100000;
+	for (int i = 0; i < trials; i++) counts[q.sample().charAt(0) - 'a']++;
+	StdOut.printf("Test - 3 sample frequencies (expect 0.1, 0.2, 0.7): %.3f, %.3f, %.3f%n",
+	              counts[0] * 1.0 / trials, counts[1] * 1.0 / trials, counts[2] * 1.0 / trials);
+
+	StdOut.println("Test - 4 dequeue: " + q.dequeue() + ", total weight: " + q.totalWeight());
+	StdOut.println("Test - 5 dequeue: " + q.dequeue() + ", " + q.dequeue() + ", empty: " + q.isEmpty());
+    }
+}
@@ -0,0 +1,16 @@
+#!/bin/sh
+# Generates LongDeque.java and DoubleDeque.java from the IntDeque.java template.
+cd "$(dirname "$0")"
+
+generate() {  # generate <Type> <type> <Boxed>
+    sed -e "s/IntDeque/$1Deque/g; s/OfInt/Of$1/g; s/nextInt/next$1/g; s/Integer/$3/g" \
+        -e "s/int item/$2 item/g; s/int\[\]/$2[]/g; s/new int\[/new $2[/g" \
+        -e "s/public int remove/public $2 remove/g; s/public int next/public $2 next/g" \
+        -e "s/{@code int}/{@code $2}/g" \
+        -e "/This file is the template/,/regenerate them/c\\
+ * Generated from {@code IntDeque} by {@code primitive-deques.sh}, do not edit." \
+        IntDeque.java > "$1Deque.java"
+}
+
+generate Long long Long
+generate Double double Double